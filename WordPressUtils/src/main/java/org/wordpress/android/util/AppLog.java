@@ -9,22 +9,32 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 
+import org.wordpress.android.util.helpers.logfile.LogExportFormat;
+import org.wordpress.android.util.helpers.logfile.LogDateFormatter;
+import org.wordpress.android.util.helpers.logfile.LogExporter;
 import org.wordpress.android.util.helpers.logfile.LogFileCleaner;
+import org.wordpress.android.util.helpers.logfile.LogFileFormat;
 import org.wordpress.android.util.helpers.logfile.LogFileProvider;
 import org.wordpress.android.util.helpers.logfile.LogFileWriter;
-
-import java.io.PrintWriter;
+import org.wordpress.android.util.helpers.logfile.LogRecord;
+import org.wordpress.android.util.helpers.logfile.LogRotationPolicy;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.StringWriter;
-import java.text.SimpleDateFormat;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
-import java.util.NoSuchElementException;
-import java.util.TimeZone;
-
-import static java.lang.String.format;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
 
 /**
  * simple wrapper for Android log calls, enables recording and displaying log
@@ -71,9 +81,28 @@ public class AppLog {
 
     public static final String TAG = "WordPress";
     public static final int HEADER_LINE_COUNT = 2;
-    private static boolean mEnableRecording = false;
-    private static List<AppLogListener> mListeners = new ArrayList<>(0);
-    private static TimeZone mUtcTimeZone = TimeZone.getTimeZone("UTC");
+    private static final AppLogListener[] NO_LISTENERS = new AppLogListener[0];
+    private static final String[] ANDROID_TAGS = new String[T.values().length];
+    // android.util.Log priority of each LogLevel, indexed by LogLevel.ordinal()
+    private static final int[] ANDROID_PRIORITIES = {Log.VERBOSE, Log.DEBUG, Log.INFO, Log.WARN, Log.ERROR};
+    private static final int ALL_LEVELS = (1 << LogLevel.values().length) - 1;
+    // one bit per LogLevel for each T, indexed by T.ordinal()
+    private static final AtomicIntegerArray ENABLED_LEVELS = new AtomicIntegerArray(T.values().length);
+    // null when the tag isn't rate limited, indexed by T.ordinal()
+    private static final AtomicReferenceArray<LogRateLimiter> RATE_LIMITERS =
+            new AtomicReferenceArray<>(T.values().length);
+    private static volatile boolean mEnableRecording = false;
+    // copy-on-write, so addEntry can iterate without copying or locking
+    private static volatile AppLogListener[] mListeners = NO_LISTENERS;
+    // repeated stack traces are logged as a reference to the first one
+    private static final StackTraceCache STACK_TRACES = new StackTraceCache();
+
+    static {
+        for (T tag : T.values()) {
+            ANDROID_TAGS[tag.ordinal()] = TAG + "-" + tag.name();
+            ENABLED_LEVELS.set(tag.ordinal(), ALL_LEVELS);
+        }
+    }
 
     private AppLog() {
         throw new AssertionError();
@@ -87,12 +116,121 @@ public class AppLog {
         mEnableRecording = enable;
     }
 
-    public static void addListener(@NonNull AppLogListener listener) {
-        mListeners.add(listener);
+    /**
+     * Returns true if messages for the given tag and level are currently logged.
+     */
+    public static boolean isLoggable(T tag, LogLevel level) {
+        return (ENABLED_LEVELS.get(tag.ordinal()) & (1 << level.ordinal())) != 0;
+    }
+
+    /**
+     * Enables or disables a single level for a tag. Disabled messages are dropped before they reach Logcat, the
+     * listeners, the recorded log or the log file.
+     * @param tag The tag to configure
+     * @param level The level to enable or disable
+     * @param enabled Pass false to drop messages of this level, true to log them again
+     */
+    public static void setLevelEnabled(T tag, LogLevel level, boolean enabled) {
+        int bit = 1 << level.ordinal();
+        int current;
+        do {
+            current = ENABLED_LEVELS.get(tag.ordinal());
+        } while (!ENABLED_LEVELS.compareAndSet(tag.ordinal(), current, enabled ? current | bit : current & ~bit));
+    }
+
+    /**
+     * Logs only the messages of the given tag whose level is at least minLevel, e.g. pass LogLevel.d to drop the
+     * verbose messages of a chatty tag.
+     */
+    public static void setMinLevel(T tag, LogLevel minLevel) {
+        ENABLED_LEVELS.set(tag.ordinal(), levelsFrom(minLevel));
+    }
+
+    /**
+     * Logs only the messages whose level is at least minLevel, for every tag.
+     */
+    public static void setMinLevel(LogLevel minLevel) {
+        int levels = levelsFrom(minLevel);
+        for (int i = 0; i < ENABLED_LEVELS.length(); i++) {
+            ENABLED_LEVELS.set(i, levels);
+        }
+    }
+
+    /**
+     * Logs every level of every tag again, which is the default.
+     */
+    public static void resetLevels() {
+        setMinLevel(LogLevel.v);
+    }
+
+    private static int levelsFrom(LogLevel minLevel) {
+        return ALL_LEVELS & ~((1 << minLevel.ordinal()) - 1);
+    }
+
+    /**
+     * Limits how many messages a chatty tag may log, e.g. T.READER during a feed sync. Messages above the limit are
+     * dropped before they reach Logcat, the listeners, the recorded log or the log file, and the next message which
+     * gets through is preceded by a "suppressed N similar messages" summary.
+     *
+     * Messages logged with a format string or a supplier are limited per call site, other messages share a limit
+     * for the whole tag. Errors are never rate limited.
+     * @param tag The tag to limit
+     * @param burstSize The number of messages which may be logged in a row before the rate applies
+     * @param messagesPerSecond The sustained number of messages allowed per second
+     */
+    public static void setRateLimit(T tag, int burstSize, double messagesPerSecond) {
+        RATE_LIMITERS.set(tag.ordinal(), new LogRateLimiter(burstSize, messagesPerSecond));
+    }
+
+    /**
+     * Stops limiting the messages of a tag, see {@link #setRateLimit(T, int, double)}
+     */
+    public static void removeRateLimit(T tag) {
+        RATE_LIMITERS.set(tag.ordinal(), null);
+    }
+
+    /**
+     * Stops limiting the messages of every tag, which is the default.
+     */
+    public static void removeRateLimits() {
+        for (int i = 0; i < RATE_LIMITERS.length(); i++) {
+            RATE_LIMITERS.set(i, null);
+        }
+    }
+
+    public static synchronized void addListener(@NonNull AppLogListener listener) {
+        AppLogListener[] listeners = Arrays.copyOf(mListeners, mListeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        mListeners = listeners;
+    }
+
+    /**
+     * Adds a listener which is called on its own background thread instead of the logging thread, so it can't slow
+     * down the callers of AppLog.
+     * @param listener The listener to call
+     * @param queueCapacity The maximum number of entries waiting to be delivered to the listener
+     * @param overflowPolicy What to do with new entries when the queue is full
+     * @return The wrapper, which exposes the queue depth and the number of dropped entries
+     */
+    public static AsyncAppLogListener addAsyncListener(@NonNull AppLogListener listener, int queueCapacity,
+                                                       @NonNull AsyncAppLogListener.OverflowPolicy overflowPolicy) {
+        AsyncAppLogListener asyncListener = new AsyncAppLogListener(listener, queueCapacity, overflowPolicy);
+        addListener(asyncListener);
+        return asyncListener;
     }
 
     public static void removeListeners() {
-        mListeners.clear();
+        AppLogListener[] removed;
+        synchronized (AppLog.class) {
+            removed = mListeners;
+            mListeners = NO_LISTENERS;
+        }
+        // outside of the lock, since shutting down waits for the listeners, which may call AppLog
+        for (AppLogListener listener : removed) {
+            if (listener instanceof AsyncAppLogListener) {
+                ((AsyncAppLogListener) listener).shutdown();
+            }
+        }
     }
 
     public interface AppLogListener {
@@ -104,16 +242,92 @@ public class AppLog {
      * @param context The current application context
      * @param maxLogCount The maximum number of logs that should be stored
      */
-     public static void enableLogFilePersistence(Context context, int maxLogCount) {
+    public static void enableLogFilePersistence(Context context, int maxLogCount) {
+        enableLogFilePersistence(context, maxLogCount, LogFileFormat.TEXT);
+    }
+
+    /**
+     * Add a LogFileWriter that will persist logs to disk
+     * @param context The current application context
+     * @param maxLogCount The maximum number of logs that should be stored
+     * @param format The format of the log file, binary files are smaller and cheaper to write and can be rendered
+     *               with LogFileDecoder
+     */
+    public static void enableLogFilePersistence(Context context, int maxLogCount, LogFileFormat format) {
+        enableLogFilePersistence(context, maxLogCount, format, LogRotationPolicy.NONE);
+    }
+
+    /**
+     * Add a LogFileWriter that will persist logs to disk
+     * @param context The current application context
+     * @param maxLogCount The maximum number of logs that should be stored, the files a log is rotated into count
+     *                    once
+     * @param format The format of the log file, binary files are smaller and cheaper to write and can be rendered
+     *               with LogFileDecoder
+     * @param rotationPolicy When to continue in a new log file, and the disk budget for all of them
+     */
+     public static void enableLogFilePersistence(Context context, int maxLogCount, LogFileFormat format,
+                                                 LogRotationPolicy rotationPolicy) {
          LogFileProvider logFileProvider = LogFileProvider.fromContext(context);
          new LogFileCleaner(logFileProvider, maxLogCount).clean();
+         logFileProvider.enforceDiskBudget(rotationPolicy.getMaxTotalSizeBytes(), null);
 
-         sLogFileWriter = new LogFileWriter(logFileProvider);
+         String logFileId = DateTimeUtils.iso8601FromDate(new Date());
+         sLogFileProvider = logFileProvider;
+         sLogFileId = logFileId;
+         sLogFileWriter = new LogFileWriter(logFileProvider, logFileId, format,
+                 LogFileWriter.DEFAULT_MAX_BATCH_SIZE, LogFileWriter.DEFAULT_MAX_FLUSH_DELAY_MS, rotationPolicy);
          sLogFileWriter.write(getAppInfoHeaderText(context) + "\n");
          sLogFileWriter.write(getDeviceInfoHeaderText(context) + "\n");
+         setCrashReportFile();
     }
 
+    private static LogFileProvider sLogFileProvider;
     private static LogFileWriter sLogFileWriter;
+    private static String sLogFileId;
+    private static CrashLogHandler sCrashLogHandler;
+    private static volatile long sCrashFlushTimeoutMs;
+
+    /**
+     * Writes the uncaught exception to a crash report next to the log file, then the pending log records to the log
+     * file, when the app crashes, before the previous default uncaught exception handler runs. The report is written
+     * even when the app is out of memory. Does nothing until log file persistence is enabled.
+     * @param flushTimeoutMs The longest time the crashing thread may spend writing the log file, so a slow disk
+     *                       can't delay the crash itself
+     */
+    public static synchronized void enableCrashSafePersistence(long flushTimeoutMs) {
+        sCrashFlushTimeoutMs = flushTimeoutMs;
+        if (sCrashLogHandler == null) {
+            sCrashLogHandler = new CrashLogHandler(CrashLogHandler.DEFAULT_EMERGENCY_BUFFER_SIZE,
+                    Thread.getDefaultUncaughtExceptionHandler());
+            Thread.setDefaultUncaughtExceptionHandler(sCrashLogHandler);
+            setCrashReportFile();
+        }
+    }
+
+    /**
+     * Sets the crash report file of the current log file, named after it with the crash extension, once both crash
+     * safe and log file persistence are enabled
+     */
+    private static synchronized void setCrashReportFile() {
+        LogFileProvider logFileProvider = sLogFileProvider;
+        if (sCrashLogHandler == null || logFileProvider == null) {
+            return;
+        }
+        sCrashLogHandler.setReportFile(new File(logFileProvider.getLogFileDirectory(),
+                sLogFileId + "." + CrashLogHandler.REPORT_EXTENSION));
+    }
+
+    /**
+     * Called by {@link CrashLogHandler}, returns true if every pending record was written in time
+     */
+    static boolean flushForCrash() {
+        LogFileWriter logFileWriter = sLogFileWriter;
+        if (logFileWriter == null) {
+            return false;
+        }
+        return logFileWriter.flushNow(sCrashFlushTimeoutMs);
+    }
 
     /**
      * Sends a VERBOSE log message
@@ -122,9 +336,9 @@ public class AppLog {
      * @param message The message you would like logged.
      */
     public static void v(T tag, String message) {
-        message = StringUtils.notNullStr(message);
-        Log.v(TAG + "-" + tag.toString(), message);
-        addEntry(tag, LogLevel.v, message);
+        if (isLoggable(tag, LogLevel.v) && acquire(tag, LogLevel.v, null)) {
+            log(tag, LogLevel.v, message);
+        }
     }
 
     /**
@@ -134,9 +348,9 @@ public class AppLog {
      * @param message The message you would like logged.
      */
     public static void d(T tag, String message) {
-        message = StringUtils.notNullStr(message);
-        Log.d(TAG + "-" + tag.toString(), message);
-        addEntry(tag, LogLevel.d, message);
+        if (isLoggable(tag, LogLevel.d) && acquire(tag, LogLevel.d, null)) {
+            log(tag, LogLevel.d, message);
+        }
     }
 
     /**
@@ -146,9 +360,9 @@ public class AppLog {
      * @param message The message you would like logged.
      */
     public static void i(T tag, String message) {
-        message = StringUtils.notNullStr(message);
-        Log.i(TAG + "-" + tag.toString(), message);
-        addEntry(tag, LogLevel.i, message);
+        if (isLoggable(tag, LogLevel.i) && acquire(tag, LogLevel.i, null)) {
+            log(tag, LogLevel.i, message);
+        }
     }
 
     /**
@@ -158,9 +372,9 @@ public class AppLog {
      * @param message The message you would like logged.
      */
     public static void w(T tag, String message) {
-        message = StringUtils.notNullStr(message);
-        Log.w(TAG + "-" + tag.toString(), message);
-        addEntry(tag, LogLevel.w, message);
+        if (isLoggable(tag, LogLevel.w) && acquire(tag, LogLevel.w, null)) {
+            log(tag, LogLevel.w, message);
+        }
     }
 
     /**
@@ -170,9 +384,9 @@ public class AppLog {
      * @param message The message you would like logged.
      */
     public static void e(T tag, String message) {
-        message = StringUtils.notNullStr(message);
-        Log.e(TAG + "-" + tag.toString(), message);
-        addEntry(tag, LogLevel.e, message);
+        if (isLoggable(tag, LogLevel.e)) {
+            log(tag, LogLevel.e, message);
+        }
     }
 
     /**
@@ -183,10 +397,15 @@ public class AppLog {
      * @param tr An exception to log
      */
     public static void e(T tag, String message, Throwable tr) {
+        if (!isLoggable(tag, LogLevel.e)) {
+            return;
+        }
         message = StringUtils.notNullStr(message);
-        Log.e(TAG + "-" + tag.toString(), message, tr);
-        addEntry(tag, LogLevel.e, message + " - exception: " + tr.getMessage());
-        addEntry(tag, LogLevel.e, "StackTrace: " + getStringStackTrace(tr));
+        Log.e(androidTag(tag), message, tr);
+        if (hasConsumers()) {
+            addEntry(tag, LogLevel.e, message + " - exception: " + tr.getMessage());
+            addEntry(tag, LogLevel.e, STACK_TRACES.describe(tr));
+        }
     }
 
     /**
@@ -196,9 +415,14 @@ public class AppLog {
      * @param tr An exception to log to get StackTrace
      */
     public static void e(T tag, Throwable tr) {
-        Log.e(TAG + "-" + tag.toString(), tr.getMessage(), tr);
-        addEntry(tag, LogLevel.e, tr.getMessage());
-        addEntry(tag, LogLevel.e, "StackTrace: " + getStringStackTrace(tr));
+        if (!isLoggable(tag, LogLevel.e)) {
+            return;
+        }
+        Log.e(androidTag(tag), tr.getMessage(), tr);
+        if (hasConsumers()) {
+            addEntry(tag, LogLevel.e, tr.getMessage());
+            addEntry(tag, LogLevel.e, STACK_TRACES.describe(tr));
+        }
     }
 
     /**
@@ -209,7 +433,7 @@ public class AppLog {
      * @param statusCode
      */
     public static void e(T tag, String volleyErrorMsg, int statusCode) {
-        if (TextUtils.isEmpty(volleyErrorMsg)) {
+        if (TextUtils.isEmpty(volleyErrorMsg) || !isLoggable(tag, LogLevel.e)) {
             return;
         }
         String logText;
@@ -218,13 +442,130 @@ public class AppLog {
         } else {
             logText = volleyErrorMsg + ", status " + statusCode;
         }
-        Log.e(TAG + "-" + tag.toString(), logText);
+        Log.e(androidTag(tag), logText);
         addEntry(tag, LogLevel.w, logText);
     }
 
+    /**
+     * Sends a VERBOSE log message built from a format string. The message is only formatted if the tag and level
+     * are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param format A {@link String#format(String, Object...)} format string
+     * @param args The arguments referenced by the format string
+     */
+    public static void v(T tag, String format, Object... args) {
+        if (isLoggable(tag, LogLevel.v) && acquire(tag, LogLevel.v, format)) {
+            log(tag, LogLevel.v, String.format(format, args));
+        }
+    }
+
+    /**
+     * Sends a DEBUG log message built from a format string. The message is only formatted if the tag and level
+     * are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param format A {@link String#format(String, Object...)} format string
+     * @param args The arguments referenced by the format string
+     */
+    public static void d(T tag, String format, Object... args) {
+        if (isLoggable(tag, LogLevel.d) && acquire(tag, LogLevel.d, format)) {
+            log(tag, LogLevel.d, String.format(format, args));
+        }
+    }
+
+    /**
+     * Sends a INFO log message built from a format string. The message is only formatted if the tag and level
+     * are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param format A {@link String#format(String, Object...)} format string
+     * @param args The arguments referenced by the format string
+     */
+    public static void i(T tag, String format, Object... args) {
+        if (isLoggable(tag, LogLevel.i) && acquire(tag, LogLevel.i, format)) {
+            log(tag, LogLevel.i, String.format(format, args));
+        }
+    }
+
+    /**
+     * Sends a WARN log message built from a format string. The message is only formatted if the tag and level
+     * are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param format A {@link String#format(String, Object...)} format string
+     * @param args The arguments referenced by the format string
+     */
+    public static void w(T tag, String format, Object... args) {
+        if (isLoggable(tag, LogLevel.w) && acquire(tag, LogLevel.w, format)) {
+            log(tag, LogLevel.w, String.format(format, args));
+        }
+    }
+
+    /**
+     * Sends a VERBOSE log message which is only built if the tag and level are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param messageSupplier Builds the message you would like logged.
+     */
+    public static void v(T tag, Supplier<String> messageSupplier) {
+        if (isLoggable(tag, LogLevel.v) && acquire(tag, LogLevel.v, messageSupplier.getClass())) {
+            log(tag, LogLevel.v, messageSupplier.get());
+        }
+    }
+
+    /**
+     * Sends a DEBUG log message which is only built if the tag and level are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param messageSupplier Builds the message you would like logged.
+     */
+    public static void d(T tag, Supplier<String> messageSupplier) {
+        if (isLoggable(tag, LogLevel.d) && acquire(tag, LogLevel.d, messageSupplier.getClass())) {
+            log(tag, LogLevel.d, messageSupplier.get());
+        }
+    }
+
+    /**
+     * Sends a INFO log message which is only built if the tag and level are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param messageSupplier Builds the message you would like logged.
+     */
+    public static void i(T tag, Supplier<String> messageSupplier) {
+        if (isLoggable(tag, LogLevel.i) && acquire(tag, LogLevel.i, messageSupplier.getClass())) {
+            log(tag, LogLevel.i, messageSupplier.get());
+        }
+    }
+
+    /**
+     * Sends a WARN log message which is only built if the tag and level are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param messageSupplier Builds the message you would like logged.
+     */
+    public static void w(T tag, Supplier<String> messageSupplier) {
+        if (isLoggable(tag, LogLevel.w) && acquire(tag, LogLevel.w, messageSupplier.getClass())) {
+            log(tag, LogLevel.w, messageSupplier.get());
+        }
+    }
+
+    // There is no format-args variant of e(), a single int argument would resolve to e(T, String, int) instead.
+    /**
+     * Sends a ERROR log message which is only built if the tag and level are loggable.
+     * @param tag Used to identify the source of a log message.
+     * It usually identifies the class or activity where the log call occurs.
+     * @param messageSupplier Builds the message you would like logged.
+     */
+    public static void e(T tag, Supplier<String> messageSupplier) {
+        if (isLoggable(tag, LogLevel.e)) {
+            e(tag, messageSupplier.get());
+        }
+    }
+
     // --------------------------------------------------------------------------------------------------------
 
-    private static final int MAX_ENTRIES = 99;
+    private static final int DEFAULT_MAX_ENTRIES = 99;
 
     public enum LogLevel {
         v, d, i, w, e;
@@ -233,12 +574,13 @@ public class AppLog {
     private static class LogEntry {
         final LogLevel mLogLevel;
         final String mLogText;
-        final java.util.Date mDate;
+        final long mTimestamp;
         final T mLogTag;
+        long mSequence;
 
         LogEntry(LogLevel logLevel, String logText, T logTag) {
             mLogLevel = logLevel;
-            mDate = new Date();
+            mTimestamp = System.currentTimeMillis();
             if (logText == null) {
                 mLogText = "null";
             } else {
@@ -247,16 +589,20 @@ public class AppLog {
             mLogTag = logTag;
         }
 
-        private String formatLogDate() {
-            SimpleDateFormat sdf = new SimpleDateFormat("MMM-dd kk:mm", Locale.US);
-            sdf.setTimeZone(mUtcTimeZone);
-            return sdf.format(mDate);
+        /**
+         * Copies the entry, so it gets its own sequence in another buffer
+         */
+        LogEntry(LogEntry entry) {
+            mLogLevel = entry.mLogLevel;
+            mTimestamp = entry.mTimestamp;
+            mLogText = entry.mLogText;
+            mLogTag = entry.mLogTag;
         }
 
         private String toHtml() {
             StringBuilder sb = new StringBuilder();
             sb.append("[");
-            sb.append(formatLogDate()).append(" ");
+            LogDateFormatter.appendTo(sb, mTimestamp).append(" ");
             sb.append(mLogTag.name()).append(" ");
             sb.append(mLogLevel.name());
             sb.append("] ");
@@ -264,66 +610,181 @@ public class AppLog {
             return sb.toString();
         }
 
+        private LogRecord toLogRecord() {
+            return new LogRecord(mTimestamp, mLogTag, mLogLevel, mLogText);
+        }
+
         @Override
         public @NonNull String toString() {
-            return "["
-            + formatLogDate()
-            + " "
-            + mLogTag.name()
-            + "] "
-            + mLogText
-            + "\n";
+            StringBuilder sb = new StringBuilder(mLogText.length() + 32);
+            sb.append("[");
+            LogDateFormatter.appendTo(sb, mTimestamp).append(" ");
+            sb.append(mLogTag.name()).append("] ");
+            sb.append(mLogText).append("\n");
+            return sb.toString();
         }
     }
 
-    private static class LogEntryList extends ArrayList<LogEntry> {
-        private synchronized boolean addEntry(LogEntry entry) {
-            if (size() >= MAX_ENTRIES) {
-                removeFirstEntry();
+    /**
+     * Fixed-capacity ring of the most recent log entries. Writers claim a slot by advancing the next sequence with a
+     * compare-and-set loop, so logging threads never lock each other out, and readers take a snapshot without
+     * locking the writers out.
+     *
+     * To resize, setMaxEntries() seals the buffer by setting the SEALED bit in the next sequence, which makes the
+     * CAS loop fail for new writers, and waits for the writers which already claimed a slot. A writer turned away
+     * spins with Thread.yield() until the resized buffer is published, then adds its entry there.
+     */
+    private static class LogEntryRingBuffer {
+        // set in the next sequence once the buffer is replaced, so writers move on to the buffer which replaces it
+        private static final long SEALED = Long.MIN_VALUE;
+
+        private final AtomicReferenceArray<LogEntry> mSlots;
+        private final AtomicLong mNextSequence = new AtomicLong();
+        private final int mCapacity;
+
+        LogEntryRingBuffer(int capacity) {
+            mCapacity = capacity;
+            mSlots = new AtomicReferenceArray<>(capacity);
+        }
+
+        /**
+         * Returns false without adding the entry if the buffer is sealed
+         */
+        private boolean addEntry(LogEntry entry) {
+            long sequence;
+            do {
+                sequence = mNextSequence.get();
+                if ((sequence & SEALED) != 0) {
+                    return false;
+                }
+            } while (!mNextSequence.compareAndSet(sequence, sequence + 1));
+            entry.mSequence = sequence;
+            int index = (int) (sequence % mCapacity);
+            // a writer preempted for a full lap must not overwrite the newer entry already stored in its slot
+            LogEntry current = mSlots.get(index);
+            while (current == null || current.mSequence < sequence) {
+                if (mSlots.compareAndSet(index, current, entry)) {
+                    return true;
+                }
+                current = mSlots.get(index);
             }
-            return add(entry);
+            return true;
         }
 
-        private void removeFirstEntry() {
-            Iterator<LogEntry> it = iterator();
-            if (!it.hasNext()) {
-                return;
+        /**
+         * Stops the writers and returns the retained entries, oldest first, once the writers which claimed a slot
+         * before have stored their entry.
+         */
+        private List<LogEntry> seal() {
+            long end;
+            do {
+                end = mNextSequence.get();
+            } while (!mNextSequence.compareAndSet(end, end | SEALED));
+            for (long sequence = Math.max(0, end - mCapacity); sequence < end; sequence++) {
+                int index = (int) (sequence % mCapacity);
+                LogEntry entry = mSlots.get(index);
+                while (entry == null || entry.mSequence < sequence) {
+                    Thread.yield();
+                    entry = mSlots.get(index);
+                }
             }
-            try {
-                remove(it.next());
-            } catch (NoSuchElementException e) {
-                // ignore
+            return snapshot();
+        }
+
+        /**
+         * Returns the retained entries, oldest first. Slots which are still being written or which were overwritten
+         * by a newer entry while the snapshot was taken are skipped.
+         */
+        private List<LogEntry> snapshot() {
+            long end = mNextSequence.get() & ~SEALED;
+            long start = Math.max(0, end - mCapacity);
+            List<LogEntry> entries = new ArrayList<>((int) (end - start));
+            for (long sequence = start; sequence < end; sequence++) {
+                LogEntry entry = mSlots.get((int) (sequence % mCapacity));
+                if (entry != null && entry.mSequence == sequence) {
+                    entries.add(entry);
+                }
             }
+            return entries;
         }
     }
 
-    private static LogEntryList mLogEntries = new LogEntryList();
+    private static volatile LogEntryRingBuffer mLogEntries = new LogEntryRingBuffer(DEFAULT_MAX_ENTRIES);
 
-    private static void addEntry(T tag, LogLevel level, String text) {
-        // Create a new listener list to avoid ConcurrentModificationException
-        List<AppLog.AppLogListener> currentListeners = new ArrayList<>(mListeners);
+    /**
+     * Sets how many entries are kept in memory while recording. The most recent entries are carried over to the
+     * resized buffer, including the ones logged while it's resized.
+     * @param maxEntries The number of entries to retain, must be greater than zero. Default is 99.
+     */
+    public static synchronized void setMaxEntries(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero");
+        }
+        LogEntryRingBuffer resized = new LogEntryRingBuffer(maxEntries);
+        for (LogEntry entry : mLogEntries.seal()) {
+            resized.addEntry(new LogEntry(entry));
+        }
+        mLogEntries = resized;
+    }
+
+    private static String androidTag(T tag) {
+        return ANDROID_TAGS[tag.ordinal()];
+    }
+
+    /**
+     * Returns true if a listener or the recorded log would receive new entries, so callers can skip building
+     * messages nobody reads.
+     */
+    private static boolean hasConsumers() {
+        return mEnableRecording || mListeners.length > 0;
+    }
+
+    /**
+     * Returns false if the rate limit of the tag drops this message. Logs the summary of the messages dropped before
+     * it otherwise.
+     * @param callSite Identifies where the message is logged from, or null if it's unknown
+     */
+    private static boolean acquire(T tag, LogLevel level, Object callSite) {
+        LogRateLimiter rateLimiter = RATE_LIMITERS.get(tag.ordinal());
+        if (rateLimiter == null) {
+            return true;
+        }
+        int suppressed = rateLimiter.tryAcquire(callSite);
+        if (suppressed == LogRateLimiter.SUPPRESSED) {
+            return false;
+        }
+        if (suppressed > 0) {
+            log(tag, level, "suppressed " + suppressed + " similar messages");
+        }
+        return true;
+    }
 
-        // Call our listeners if any
-        for (AppLogListener listener : currentListeners) {
+    private static void log(T tag, LogLevel level, String message) {
+        message = StringUtils.notNullStr(message);
+        Log.println(ANDROID_PRIORITIES[level.ordinal()], androidTag(tag), message);
+        addEntry(tag, level, message);
+    }
+
+    private static void addEntry(T tag, LogLevel level, String text) {
+        // Call our listeners if any, the array is never mutated once published
+        AppLogListener[] listeners = mListeners;
+        for (AppLogListener listener : listeners) {
             listener.onLog(tag, level, text);
         }
         // Record entry if enabled
         if (mEnableRecording) {
             LogEntry entry = new LogEntry(level, text, tag);
-            mLogEntries.addEntry(entry);
+            // the buffer is being resized, its entries are carried over before the resized buffer is published
+            while (!mLogEntries.addEntry(entry)) {
+                Thread.yield();
+            }
 
             if (sLogFileWriter != null) {
-                sLogFileWriter.write(entry.toString());
+                sLogFileWriter.write(entry.mTimestamp, tag, level, entry.mLogText);
             }
         }
     }
 
-    private static String getStringStackTrace(Throwable throwable) {
-        StringWriter errors = new StringWriter();
-        throwable.printStackTrace(new PrintWriter(errors));
-        return errors.toString();
-    }
-
 
     private static String getAppInfoHeaderText(Context context) {
         StringBuilder sb = new StringBuilder();
@@ -358,9 +819,8 @@ public class AppLog {
         items.add("<strong>" + getAppInfoHeaderText(context) + "</strong>");
         items.add("<strong>" + getDeviceInfoHeaderText(context) + "</strong>");
 
-        Iterator<LogEntry> it = new ArrayList<>(mLogEntries).iterator();
-        while (it.hasNext()) {
-            items.add(it.next().toHtml());
+        for (LogEntry entry : mLogEntries.snapshot()) {
+            items.add(entry.toHtml());
         }
         return items;
     }
@@ -371,20 +831,54 @@ public class AppLog {
      * @return The log as plain text
      */
     public static synchronized String toPlainText(Context context) {
-        StringBuilder sb = new StringBuilder();
+        StringWriter writer = new StringWriter();
+        try {
+            export(context, writer, LogExportFormat.PLAIN_TEXT, false);
+        } catch (IOException e) {
+            // StringWriter doesn't throw
+        }
+        return writer.toString();
+    }
 
+    /**
+     * Streams the log to a writer as it's read, without building it in memory
+     * @param context
+     * @param writer The destination, it's flushed but not closed
+     * @param format The format to write
+     * @param includeLogFiles Pass true to also export the persisted log files, oldest first, after the recorded log.
+     *                        Ignored when log file persistence isn't enabled.
+     */
+    public static void export(Context context, Writer writer, LogExportFormat format, boolean includeLogFiles)
+            throws IOException {
+        LogExporter exporter = new LogExporter(writer, format);
         // add version & device info
-        sb.append(getAppInfoHeaderText(context)).append("\n")
-          .append(getDeviceInfoHeaderText(context)).append("\n\n");
+        exporter.writeHeader(Arrays.asList(getAppInfoHeaderText(context), getDeviceInfoHeaderText(context)));
 
-        Iterator<LogEntry> it = new ArrayList<>(mLogEntries).iterator();
-        int lineNum = 1;
-        while (it.hasNext()) {
-            LogEntry entry = it.next();
-            sb.append(format(Locale.US, "%02d - ", lineNum))
-              .append(entry.toString());
-            lineNum++;
+        for (LogEntry entry : mLogEntries.snapshot()) {
+            exporter.writeRecord(entry.toLogRecord());
         }
-        return sb.toString();
+
+        LogFileProvider logFileProvider = sLogFileProvider;
+        if (includeLogFiles && logFileProvider != null) {
+            if (sLogFileWriter != null) {
+                sLogFileWriter.flushNow();
+            }
+            for (File file : logFileProvider.getLogFiles()) {
+                // e.g. a log file rotated before anything was written to it
+                if (file.length() > 0) {
+                    exporter.writeLogFile(file);
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    /**
+     * Streams the log to an output stream as UTF-8 text, see {@link #export(Context, Writer, LogExportFormat, boolean)}
+     */
+    public static void export(Context context, OutputStream outputStream, LogExportFormat format,
+                              boolean includeLogFiles) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        export(context, writer, format, includeLogFiles);
     }
 }
@@ -0,0 +1,185 @@
+package org.wordpress.android.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import org.wordpress.android.util.AppLog.AppLogListener;
+import org.wordpress.android.util.AppLog.LogLevel;
+import org.wordpress.android.util.AppLog.T;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers log entries to a wrapped listener on its own background thread, so a slow listener, such as a crash
+ * reporter breadcrumb sink, doesn't stall the threads which are logging.
+ *
+ * Entries wait in a bounded queue, and the {@link OverflowPolicy} decides what happens when it's full.
+ */
+public class AsyncAppLogListener implements AppLogListener {
+    public enum OverflowPolicy {
+        /**
+         * Discard the oldest queued entry to make room for the new one
+         */
+        DROP_OLDEST,
+        /**
+         * Discard the new entry
+         */
+        DROP_NEWEST,
+        /**
+         * Block the logging thread until there is room in the queue. Entries logged by the wrapped listener itself
+         * are discarded instead, its thread is the one which makes room.
+         */
+        BLOCK
+    }
+
+    private static final String TAG = "AsyncAppLogListener";
+    // wakes the dispatch thread up when it's waiting for entries, once it's shut down
+    private static final Event SHUTDOWN = new Event(null, null, null);
+
+    private final AppLogListener mDelegate;
+    private final OverflowPolicy mOverflowPolicy;
+    private final BlockingQueue<Event> mQueue;
+    private final Thread mDispatchThread;
+    private final AtomicLong mDeliveredCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    // once set, the dispatch thread stops when the queue is empty
+    private volatile boolean mShutdown = false;
+
+    private static class Event {
+        final T mTag;
+        final LogLevel mLogLevel;
+        final String mMessage;
+
+        Event(T tag, LogLevel logLevel, String message) {
+            mTag = tag;
+            mLogLevel = logLevel;
+            mMessage = message;
+        }
+    }
+
+    /**
+     * @param delegate The listener to call on the background thread
+     * @param queueCapacity The maximum number of entries waiting to be delivered
+     * @param overflowPolicy What to do with new entries when the queue is full
+     */
+    public AsyncAppLogListener(@NonNull AppLogListener delegate, int queueCapacity,
+                               @NonNull OverflowPolicy overflowPolicy) {
+        mDelegate = delegate;
+        mOverflowPolicy = overflowPolicy;
+        mQueue = new ArrayBlockingQueue<>(queueCapacity);
+        mDispatchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                dispatchLoop();
+            }
+        }, TAG);
+        mDispatchThread.setDaemon(true);
+        mDispatchThread.start();
+    }
+
+    @Override
+    public void onLog(T tag, LogLevel logLevel, String message) {
+        if (mShutdown) {
+            return;
+        }
+        Event event = new Event(tag, logLevel, message);
+        switch (mOverflowPolicy) {
+            case DROP_OLDEST:
+                while (!mQueue.offer(event)) {
+                    if (mQueue.poll() != null) {
+                        mDroppedCount.incrementAndGet();
+                    }
+                }
+                break;
+            case DROP_NEWEST:
+                if (!mQueue.offer(event)) {
+                    mDroppedCount.incrementAndGet();
+                }
+                break;
+            case BLOCK:
+                if (Thread.currentThread() == mDispatchThread) {
+                    // waiting for room would wait for this thread
+                    if (!mQueue.offer(event)) {
+                        mDroppedCount.incrementAndGet();
+                    }
+                    break;
+                }
+                try {
+                    mQueue.put(event);
+                } catch (InterruptedException e) {
+                    mDroppedCount.incrementAndGet();
+                    Thread.currentThread().interrupt();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Returns the number of entries waiting to be delivered
+     */
+    public int getQueueDepth() {
+        return mQueue.size();
+    }
+
+    /**
+     * Returns the number of entries delivered to the wrapped listener
+     */
+    public long getDeliveredCount() {
+        return mDeliveredCount.get();
+    }
+
+    /**
+     * Returns the number of entries discarded because the queue was full
+     */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /**
+     * Stops accepting entries, delivers the ones already queued and stops the background thread. Waits for the
+     * queued entries to be delivered, unless it's called by the wrapped listener.
+     * Called by {@link AppLog#removeListeners()}.
+     */
+    public void shutdown() {
+        if (mShutdown) {
+            return;
+        }
+        mShutdown = true;
+        // not interrupting the thread, so the wrapped listener's I/O isn't aborted. When the queue is full, the thread
+        // isn't waiting and stops once it has delivered the entries, so the sentinel isn't needed, nor is it when a
+        // full queue drops it.
+        mQueue.offer(SHUTDOWN);
+        if (Thread.currentThread() == mDispatchThread) {
+            return;
+        }
+        try {
+            mDispatchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        try {
+            Event event;
+            while ((event = mShutdown ? mQueue.poll() : mQueue.take()) != null && event != SHUTDOWN) {
+                deliver(event);
+            }
+        } catch (InterruptedException e) {
+            // nobody interrupts this thread
+        }
+    }
+
+    private void deliver(Event event) {
+        try {
+            mDelegate.onLog(event.mTag, event.mLogLevel, event.mMessage);
+            mDeliveredCount.incrementAndGet();
+        } catch (RuntimeException e) {
+            // don't let a failing listener stop the delivery of the next entries, nor log through AppLog again
+            Log.e(TAG, "Log listener failed", e);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.wordpress.android.util;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.widget.ImageView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.ImageUtils.BitmapWorkerTask;
+import org.wordpress.android.util.helpers.profiling.Counter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the decodes of BitmapWorkerTask on a pool of worker threads sized to the cores.
+ *
+ * Decodes of visible images run before prefetches, and the most recently requested first, since during a fling
+ * the images requested last are the ones on screen. Tasks asking for the same image at the same size share a
+ * single decode. A task is dropped before its decode starts once it's stale: cancelled, replaced by a newer task for
+ * the same ImageView because the view was recycled, or targeting a view which was garbage collected.
+ */
+class BitmapDecodeScheduler {
+    private static final int MAX_WORKERS = 4;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Counter DECODES = ProfilingUtils.getMetrics().counter("bitmap_decode.decodes");
+    private static final Counter COALESCED = ProfilingUtils.getMetrics().counter("bitmap_decode.coalesced");
+    private static final Counter DROPPED = ProfilingUtils.getMetrics().counter("bitmap_decode.dropped");
+
+    private static final BitmapDecodeScheduler INSTANCE = new BitmapDecodeScheduler();
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final AtomicInteger mSequence = new AtomicInteger();
+    // guarded by this
+    private final Map<String, DecodeJob> mJobs = new HashMap<>();
+    // the task of each ImageView until it's delivered, cancelled or dropped: the task's callback usually holds the
+    // ImageView, so an entry left behind would keep it alive
+    private final Map<ImageView, BitmapWorkerTask> mTargets = new WeakHashMap<>();
+
+    static BitmapDecodeScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    private BitmapDecodeScheduler() {
+        // leave a core to the UI thread
+        int workers = Math.max(1, Math.min(MAX_WORKERS, Runtime.getRuntime().availableProcessors() - 1));
+        mExecutor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<Runnable>(), new DecodeThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+        // the executor hands jobs straight to the threads it starts, so they'd run before the queued ones
+        mExecutor.prestartAllCoreThreads();
+    }
+
+    /**
+     * Schedules the decode of the task, and cancels the previous task of its ImageView. Must be called from the
+     * UI thread.
+     */
+    void submit(@NonNull BitmapWorkerTask task) {
+        DecodeJob jobToRun;
+        synchronized (this) {
+            ImageView imageView = task.getImageView();
+            if (imageView != null) {
+                BitmapWorkerTask previous = mTargets.put(imageView, task);
+                if (previous != null && previous != task) {
+                    previous.cancel(false);
+                }
+            }
+
+            String key = task.getDecodeKey();
+            DecodeJob job = mJobs.get(key);
+            if (job != null) {
+                COALESCED.increment();
+                job.mTasks.add(task);
+                if (task.getPriority().ordinal() >= job.mPriority.ordinal() || !mExecutor.getQueue().remove(job)) {
+                    // the job already runs at this priority, or has started
+                    return;
+                }
+                // queue the job again with the higher priority, it can't be changed while it's in the queue
+                job.mPriority = task.getPriority();
+                job.mSequence = mSequence.incrementAndGet();
+                jobToRun = job;
+            } else {
+                jobToRun = new DecodeJob(key, task, mSequence.incrementAndGet());
+                mJobs.put(key, jobToRun);
+            }
+        }
+        // restarts the threads which timed out while idle, so the job goes through the queue
+        mExecutor.prestartAllCoreThreads();
+        mExecutor.execute(jobToRun);
+    }
+
+    private synchronized List<BitmapWorkerTask> takeLiveTasks(DecodeJob job, boolean finished) {
+        List<BitmapWorkerTask> liveTasks = new ArrayList<>();
+        for (BitmapWorkerTask task : job.mTasks) {
+            if (!task.isStale()) {
+                liveTasks.add(task);
+            } else {
+                releaseTarget(task);
+            }
+        }
+        if (finished || liveTasks.isEmpty()) {
+            mJobs.remove(job.mKey);
+        }
+        return liveTasks;
+    }
+
+    /**
+     * Forgets the task as the one of its ImageView, unless a newer task replaced it
+     */
+    synchronized void releaseTarget(@NonNull BitmapWorkerTask task) {
+        ImageView imageView = task.getImageView();
+        if (imageView != null && mTargets.get(imageView) == task) {
+            mTargets.remove(imageView);
+        }
+    }
+
+    @Nullable
+    synchronized BitmapWorkerTask getTarget(@NonNull ImageView imageView) {
+        return mTargets.get(imageView);
+    }
+
+    private class DecodeJob implements Runnable, Comparable<DecodeJob> {
+        private final String mKey;
+        // guarded by the scheduler
+        private final List<BitmapWorkerTask> mTasks = new ArrayList<>();
+        private BitmapWorkerTask.Priority mPriority;
+        private int mSequence;
+
+        DecodeJob(String key, BitmapWorkerTask task, int sequence) {
+            mKey = key;
+            mTasks.add(task);
+            mPriority = task.getPriority();
+            mSequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            List<BitmapWorkerTask> tasks = takeLiveTasks(this, false);
+            if (tasks.isEmpty()) {
+                DROPPED.increment();
+                return;
+            }
+            DECODES.increment();
+            Bitmap decoded;
+            try {
+                decoded = tasks.get(0).loadBitmap();
+            } catch (RuntimeException e) {
+                // the job must still be finished, or later tasks for the same image would wait for it forever
+                AppLog.e(T.UTILS, "Can't decode " + mKey, e);
+                decoded = null;
+            }
+            final Bitmap bitmap = decoded;
+            final List<BitmapWorkerTask> liveTasks = takeLiveTasks(this, true);
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (BitmapWorkerTask task : liveTasks) {
+                        releaseTarget(task);
+                        task.deliver(bitmap);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public int compareTo(DecodeJob other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+            // the most recent first
+            return Integer.compare(other.mSequence, mSequence);
+        }
+    }
+
+    private static class DecodeThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NonNull final Runnable runnable) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }
+            }, "BitmapDecode-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package org.wordpress.android.util;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.Point;
+import android.os.Build;
+import android.util.DisplayMetrics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.wordpress.android.util.helpers.profiling.Counter;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bitmaps which are no longer displayed, kept to decode the next images into instead of allocating new ones, see
+ * {@link ImageUtils#getBitmapPool()}.
+ *
+ * Pooled bitmaps are grouped by allocation size. A decode reuses the smallest one large enough for the decoded
+ * image, as long as it isn't more than {@link #MAX_SIZE_MULTIPLE} times larger. When the pool holds more bytes than
+ * its budget, the bitmaps which have been pooled the longest are recycled.
+ *
+ * Bitmaps only come back to the pool when they're passed to {@link #put(Bitmap)}, which must only be done once
+ * nothing draws them anymore, e.g. when the view showing them is recycled.
+ */
+public class BitmapPool {
+    // a larger bitmap would hold on to more memory than it saves while it's in use
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    private static final Counter HITS = ProfilingUtils.getMetrics().counter("bitmap_pool.hits");
+    private static final Counter MISSES = ProfilingUtils.getMetrics().counter("bitmap_pool.misses");
+
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> mBuckets = new TreeMap<>();
+    // every pooled bitmap, in the order they were put in the pool
+    private final LinkedHashSet<Bitmap> mBitmaps = new LinkedHashSet<>();
+    private final long mMaxSize;
+    private long mSize;
+
+    /**
+     * @param maxSize The maximum number of bytes the pooled bitmaps may use
+     */
+    public BitmapPool(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative");
+        }
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns the bitmap to the pool. Bitmaps which can't be decoded into, i.e. immutable or recycled ones, are
+     * ignored.
+     */
+    public synchronized void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || mBitmaps.contains(bitmap)) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > mMaxSize) {
+            bitmap.recycle();
+            return;
+        }
+        ArrayDeque<Bitmap> bucket = mBuckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            mBuckets.put(size, bucket);
+        }
+        bucket.addLast(bitmap);
+        mBitmaps.add(bitmap);
+        mSize += size;
+        trimToSize(mMaxSize);
+    }
+
+    /**
+     * Returns a transparent bitmap of the passed dimensions and config, reusing a pooled bitmap when possible.
+     */
+    @NonNull
+    public Bitmap get(int width, int height, @NonNull Bitmap.Config config) {
+        Bitmap bitmap = take((long) width * height * bytesPerPixel(config));
+        if (bitmap != null) {
+            try {
+                bitmap.reconfigure(width, height, config);
+                bitmap.eraseColor(Color.TRANSPARENT);
+                // a decode scaled with inDensity and inTargetDensity left its target density, reset it to the one
+                // Bitmap.createBitmap() gives new bitmaps
+                bitmap.setDensity(DisplayMetrics.DENSITY_DEVICE_STABLE);
+                return bitmap;
+            } catch (IllegalArgumentException e) {
+                // the config isn't supported by the pooled bitmap
+                put(bitmap);
+            }
+        }
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * Decodes the file like BitmapFactory.decodeFile() does, into a pooled bitmap when one fits.
+     *
+     * @param options The decode options, whose outWidth and outHeight must hold the dimensions of the image as read
+     *                by an inJustDecodeBounds decode, otherwise no pooled bitmap is used. The image may be scaled
+     *                with inDensity and inTargetDensity.
+     */
+    @Nullable
+    public Bitmap decodeFile(@NonNull String path, @NonNull BitmapFactory.Options options) {
+        setInBitmap(options);
+        try {
+            return decodeFileInto(path, options);
+        } catch (IllegalArgumentException e) {
+            // BitmapFactory couldn't decode into the pooled bitmap after all, e.g. because the image is decoded
+            // with more bytes per pixel than inPreferredConfig
+            clearInBitmap(options);
+            return BitmapFactory.decodeFile(path, options);
+        }
+    }
+
+    /**
+     * Decodes the bytes like BitmapFactory.decodeByteArray() does, into a pooled bitmap when one fits.
+     *
+     * @param options The decode options, whose outWidth and outHeight must hold the dimensions of the image as read
+     *                by an inJustDecodeBounds decode, otherwise no pooled bitmap is used
+     */
+    @Nullable
+    public Bitmap decodeByteArray(@NonNull byte[] data, int offset, int length,
+                                  @NonNull BitmapFactory.Options options) {
+        setInBitmap(options);
+        try {
+            return decodeByteArrayInto(data, offset, length, options);
+        } catch (IllegalArgumentException e) {
+            clearInBitmap(options);
+            return BitmapFactory.decodeByteArray(data, offset, length, options);
+        }
+    }
+
+    /**
+     * Releases the pooled bitmaps in response to ComponentCallbacks2.onTrimMemory(): all of them once the app is in
+     * the background, half of them when its UI is hidden.
+     */
+    public synchronized void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            trimToSize(mMaxSize / 2);
+        }
+    }
+
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Returns the number of bytes used by the pooled bitmaps
+     */
+    public synchronized long getSize() {
+        return mSize;
+    }
+
+    public long getMaxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the dimensions BitmapFactory decodes the image to with the options, or null if outWidth and outHeight
+     * don't hold the dimensions of the image
+     */
+    @Nullable
+    static Point getDecodedSize(@NonNull BitmapFactory.Options options) {
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+        // decoders round the sample size down to a power of two
+        int sampleSize = Integer.highestOneBit(Math.max(1, options.inSampleSize));
+        int width = getSampledDimension(options.outWidth, sampleSize, options.outMimeType);
+        int height = getSampledDimension(options.outHeight, sampleSize, options.outMimeType);
+        if (options.inScaled && options.inDensity != 0 && options.inTargetDensity != 0
+            && options.inDensity != options.inScreenDensity) {
+            // the decoder scales the sampled image, rounding like this
+            float scale = (float) options.inTargetDensity / options.inDensity;
+            width = (int) (width * scale + 0.5f);
+            height = (int) (height * scale + 0.5f);
+        }
+        return new Point(width, height);
+    }
+
+    /**
+     * Returns a dimension of an image sampled down by sampleSize, a power of two. The JPEG decoder rounds it up, the
+     * other decoders round it down.
+     */
+    static int getSampledDimension(int dimension, int sampleSize, @Nullable String mimeType) {
+        if ("image/jpeg".equals(mimeType)) {
+            return (dimension + sampleSize - 1) / sampleSize;
+        }
+        return Math.max(1, dimension / sampleSize);
+    }
+
+    private Bitmap decodeFileInto(String path, BitmapFactory.Options options) {
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null) {
+            clearInBitmap(options);
+        }
+        return bitmap;
+    }
+
+    private Bitmap decodeByteArrayInto(byte[] data, int offset, int length, BitmapFactory.Options options) {
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, offset, length, options);
+        if (bitmap == null) {
+            clearInBitmap(options);
+        }
+        return bitmap;
+    }
+
+    private void setInBitmap(BitmapFactory.Options options) {
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        Point size = getDecodedSize(options);
+        if (size == null) {
+            return;
+        }
+        Bitmap.Config config = options.inPreferredConfig != null ? options.inPreferredConfig : Bitmap.Config.ARGB_8888;
+        options.inBitmap = take((long) size.x * size.y * bytesPerPixel(config));
+    }
+
+    /**
+     * Puts the bitmap passed as inBitmap back in the pool, after a failed decode
+     */
+    private void clearInBitmap(BitmapFactory.Options options) {
+        Bitmap inBitmap = options.inBitmap;
+        options.inBitmap = null;
+        put(inBitmap);
+    }
+
+    @Nullable
+    private synchronized Bitmap take(long minSize) {
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = null;
+        if (minSize > 0 && minSize <= Integer.MAX_VALUE) {
+            entry = mBuckets.ceilingEntry((int) minSize);
+        }
+        if (entry == null || entry.getKey() > minSize * MAX_SIZE_MULTIPLE) {
+            MISSES.increment();
+            return null;
+        }
+        ArrayDeque<Bitmap> bucket = entry.getValue();
+        Bitmap bitmap = bucket.pollLast();
+        if (bucket.isEmpty()) {
+            mBuckets.remove(entry.getKey());
+        }
+        mBitmaps.remove(bitmap);
+        mSize -= entry.getKey();
+        HITS.increment();
+        return bitmap;
+    }
+
+    private void trimToSize(long maxSize) {
+        Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (mSize > maxSize && iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            iterator.remove();
+            int size = bitmap.getAllocationByteCount();
+            ArrayDeque<Bitmap> bucket = mBuckets.get(size);
+            bucket.remove(bitmap);
+            if (bucket.isEmpty()) {
+                mBuckets.remove(size);
+            }
+            mSize -= size;
+            bitmap.recycle();
+        }
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && config == Bitmap.Config.RGBA_F16) {
+            return 8;
+        }
+        return 4;
+    }
+}
@@ -0,0 +1,218 @@
+package org.wordpress.android.util;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Uncaught exception handler installed by {@link AppLog#enableCrashSafePersistence(long)}. Writes the crash report
+ * to the report file of the log, then every pending log record to the log file, then hands the exception to the
+ * previous handler.
+ *
+ * Everything the report needs is allocated up front: it's rendered as UTF-8 straight into a direct buffer, causes are
+ * tracked in a fixed-size array. The report file is only created on a crash, so sessions which don't crash leave no
+ * empty report behind. Opening it and Throwable.getStackTrace(), which copies the frames, are the only allocations
+ * left, so a memory reserve is released first to leave room for them. If getStackTrace() still fails the report lists
+ * the exception without its frames. The report is truncated to the size of the buffer.
+ */
+class CrashLogHandler implements Thread.UncaughtExceptionHandler {
+    static final int DEFAULT_EMERGENCY_BUFFER_SIZE = 16 * 1024;
+    static final String REPORT_EXTENSION = "crash";
+
+    private static final String TAG = "CrashLogHandler";
+    // deeper causes are left out, they're almost always a cycle
+    private static final int MAX_CAUSES = 16;
+    private static final int MEMORY_RESERVE_SIZE = 64 * 1024;
+
+    private final ByteBuffer mEmergencyBuffer;
+    private final Throwable[] mVisitedCauses = new Throwable[MAX_CAUSES];
+    @Nullable private final Thread.UncaughtExceptionHandler mPreviousHandler;
+    @Nullable private volatile File mReportFile;
+    @SuppressWarnings({"unused", "FieldCanBeLocal"})
+    @Nullable private byte[] mMemoryReserve = new byte[MEMORY_RESERVE_SIZE];
+
+    CrashLogHandler(int emergencyBufferSize, @Nullable Thread.UncaughtExceptionHandler previousHandler) {
+        mEmergencyBuffer = ByteBuffer.allocateDirect(emergencyBufferSize);
+        mPreviousHandler = previousHandler;
+    }
+
+    /**
+     * Sets the file crash reports are appended to, replacing the previous one. It's created on the first crash.
+     */
+    void setReportFile(@NonNull File file) {
+        mReportFile = file;
+    }
+
+    @Override
+    public void uncaughtException(@NonNull Thread thread, @NonNull Throwable throwable) {
+        try {
+            writeReport(thread, throwable);
+        } catch (Throwable t) {
+            // the pending records and the previous handler must follow whatever happens here
+            Log.e(TAG, "Persisting the crash report failed", t);
+        }
+        try {
+            AppLog.flushForCrash();
+        } catch (Throwable t) {
+            Log.e(TAG, "Persisting the pending log records failed", t);
+        } finally {
+            if (mPreviousHandler != null) {
+                mPreviousHandler.uncaughtException(thread, throwable);
+            }
+        }
+    }
+
+    private synchronized void writeReport(Thread thread, Throwable throwable) throws IOException {
+        mMemoryReserve = null;
+        File file = mReportFile;
+        if (file == null) {
+            return;
+        }
+        ByteBuffer buffer = mEmergencyBuffer;
+        buffer.clear();
+        renderReport(thread, throwable);
+        buffer.flip();
+        FileChannel channel = new FileOutputStream(file, true).getChannel();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Renders the thread name and the stack traces of the cause chain into the emergency buffer
+     */
+    private void renderReport(Thread thread, Throwable throwable) {
+        append("FATAL EXCEPTION: ").append(thread.getName());
+        int causes = 0;
+        for (Throwable current = throwable; current != null && causes < MAX_CAUSES && !isVisited(current, causes);
+             current = current.getCause()) {
+            mVisitedCauses[causes] = current;
+            append(causes == 0 ? "\n" : "\nCaused by: ");
+            causes++;
+            try {
+                renderThrowable(current);
+            } catch (OutOfMemoryError e) {
+                append("\n\t(frames unavailable, out of memory)");
+                break;
+            }
+        }
+        append("\n");
+        // don't keep the exceptions alive
+        for (int i = 0; i < causes; i++) {
+            mVisitedCauses[i] = null;
+        }
+    }
+
+    private boolean isVisited(Throwable throwable, int causes) {
+        for (int i = 0; i < causes; i++) {
+            if (mVisitedCauses[i] == throwable) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders the throwable like Throwable.toString() and its frames like StackTraceElement.toString()
+     */
+    private void renderThrowable(Throwable throwable) {
+        append(throwable.getClass().getName());
+        String message = throwable.getLocalizedMessage();
+        if (message != null) {
+            append(": ").append(message);
+        }
+        for (StackTraceElement element : throwable.getStackTrace()) {
+            if (!mEmergencyBuffer.hasRemaining()) {
+                return;
+            }
+            append("\n\tat ").append(element.getClassName()).append(".").append(element.getMethodName());
+            String fileName = element.getFileName();
+            if (element.isNativeMethod()) {
+                append("(Native Method)");
+            } else if (fileName == null) {
+                append("(Unknown Source)");
+            } else {
+                append("(").append(fileName);
+                if (element.getLineNumber() >= 0) {
+                    append(":").append(element.getLineNumber());
+                }
+                append(")");
+            }
+        }
+    }
+
+    /**
+     * Encodes the string as UTF-8 into the emergency buffer, dropping what doesn't fit
+     */
+    private CrashLogHandler append(@Nullable String string) {
+        if (string == null) {
+            return append("null");
+        }
+        ByteBuffer buffer = mEmergencyBuffer;
+        for (int i = 0; i < string.length(); i++) {
+            char c = string.charAt(i);
+            if (c < 0x80) {
+                if (buffer.remaining() < 1) {
+                    break;
+                }
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                if (buffer.remaining() < 2) {
+                    break;
+                }
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < string.length()
+                       && Character.isLowSurrogate(string.charAt(i + 1))) {
+                if (buffer.remaining() < 4) {
+                    break;
+                }
+                int codePoint = Character.toCodePoint(c, string.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                // unpaired
+                if (buffer.remaining() < 1) {
+                    break;
+                }
+                buffer.put((byte) '?');
+            } else {
+                if (buffer.remaining() < 3) {
+                    break;
+                }
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Appends the decimal digits of a non-negative number without allocating a string
+     */
+    private CrashLogHandler append(int number) {
+        int divisor = 1;
+        while (number / divisor >= 10) {
+            divisor *= 10;
+        }
+        ByteBuffer buffer = mEmergencyBuffer;
+        for (; divisor > 0 && buffer.hasRemaining(); divisor /= 10) {
+            buffer.put((byte) ('0' + number / divisor % 10));
+        }
+        return this;
+    }
+}
@@ -17,22 +17,24 @@ import android.media.ExifInterface;
 import android.media.MediaMetadataRetriever;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
-import android.os.AsyncTask;
 import android.provider.MediaStore;
 import android.text.TextUtils;
 import android.util.Log;
 import android.webkit.MimeTypeMap;
 import android.widget.ImageView;
 
+import androidx.annotation.Nullable;
+
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.wordpress.android.util.helpers.profiling.Counter;
+import org.wordpress.android.util.helpers.profiling.Timer;
 
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -41,8 +43,45 @@ import java.lang.ref.WeakReference;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class ImageUtils {
+    private static final Timer OPTIMIZE_TIMER = ProfilingUtils.getMetrics().timer("image.optimize");
+    private static final Counter OPTIMIZE_FAILURES = ProfilingUtils.getMetrics().counter("image.optimize.failures");
+    // a few screens worth of thumbnails on low-end devices, where the heap limit is around 192MB
+    private static final BitmapPool BITMAP_POOL = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+    // larger images are decoded by tiles when resized
+    private static final long MAX_DECODE_SIZE = Runtime.getRuntime().maxMemory() / 4;
+
+    private static final int THUMBNAIL_CACHE_DISK_SIZE = 32 * 1024 * 1024;
+    private static volatile ThumbnailCache sThumbnailCache;
+
+    /**
+     * Returns the pool the decodes of this class reuse bitmaps from. Bitmaps returned by
+     * getWPImageSpanThumbnailFromFilePath() can be put back in it once they're no longer displayed, and the app
+     * should call {@link BitmapPool#trimMemory(int)} from its onTrimMemory().
+     */
+    public static BitmapPool getBitmapPool() {
+        return BITMAP_POOL;
+    }
+
+    /**
+     * Returns the cache of the thumbnails decoded by BitmapWorkerTask. The app should call
+     * {@link ThumbnailCache#trimMemory(int)} from its onTrimMemory().
+     */
+    public static ThumbnailCache getThumbnailCache(Context context) {
+        if (sThumbnailCache == null) {
+            synchronized (ImageUtils.class) {
+                if (sThumbnailCache == null) {
+                    sThumbnailCache = new ThumbnailCache(new File(context.getCacheDir(), "thumbnails"),
+                            (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE),
+                            THUMBNAIL_CACHE_DISK_SIZE);
+                }
+            }
+        }
+        return sThumbnailCache;
+    }
+
     public static int[] getImageSize(Uri uri, Context context) {
         String path = null;
         BitmapFactory.Options options = new BitmapFactory.Options();
@@ -207,26 +246,127 @@ public class ImageUtils {
         void onBitmapReady(String filePath, ImageView imageView, Bitmap bitmap);
     }
 
-    public static class BitmapWorkerTask extends AsyncTask<String, Void, Bitmap> {
+    /**
+     * Decodes the thumbnail of an image file, or gets it from the thumbnail cache. The bitmaps passed to the
+     * callback are shared through the cache, they must not be modified or recycled.
+     *
+     * Decodes run on a bounded pool of worker threads, visible images first. Starting a task for an ImageView cancels
+     * the previous task of that view, so the decodes of recycled views are dropped before they start, and tasks
+     * asking for the same thumbnail share a single decode.
+     */
+    public static class BitmapWorkerTask {
+        /**
+         * The order in which decodes run: VISIBLE before PREFETCH, and the most recently started first within each
+         */
+        public enum Priority {
+            VISIBLE,
+            PREFETCH
+        }
+
         private final WeakReference<ImageView> mImageViewReference;
+        private final boolean mHasImageView;
         private final BitmapWorkerCallback mCallback;
+        private final Context mContext;
+        private final Priority mPriority;
         private int mTargetWidth;
         private int mTargetHeight;
         private String mPath;
+        private volatile boolean mCancelled;
 
         public BitmapWorkerTask(ImageView imageView, int width, int height, BitmapWorkerCallback callback) {
+            this(imageView, width, height, Priority.VISIBLE, callback);
+        }
+
+        public BitmapWorkerTask(ImageView imageView, int width, int height, Priority priority,
+                                BitmapWorkerCallback callback) {
             // Use a WeakReference to ensure the ImageView can be garbage collected
             mImageViewReference = new WeakReference<ImageView>(imageView);
+            mHasImageView = imageView != null;
+            mContext = imageView != null ? imageView.getContext().getApplicationContext() : null;
             this.mCallback = callback;
+            mPriority = priority;
             mTargetWidth = width;
             mTargetHeight = height;
         }
 
-        // Decode image in background.
-        @Override
-        protected Bitmap doInBackground(String... params) {
+        /**
+         * Schedules the decode of the image file at params[0]. Must be called from the UI thread, which the callback
+         * is called on.
+         */
+        public BitmapWorkerTask execute(String... params) {
             mPath = params[0];
+            BitmapDecodeScheduler.getInstance().submit(this);
+            return this;
+        }
 
+        /**
+         * @deprecated Decodes always run on the scheduler of BitmapWorkerTask, use {@link #execute(String...)}
+         */
+        @Deprecated
+        public BitmapWorkerTask executeOnExecutor(Executor executor, String... params) {
+            return execute(params);
+        }
+
+        /**
+         * Cancels the task: its decode is dropped if it hasn't started, and the callback isn't called
+         */
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean wasCancelled = mCancelled;
+            mCancelled = true;
+            BitmapDecodeScheduler.getInstance().releaseTarget(this);
+            return !wasCancelled;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        @Nullable
+        ImageView getImageView() {
+            return mImageViewReference.get();
+        }
+
+        String getDecodeKey() {
+            return mPath + "|" + mTargetWidth + "x" + mTargetHeight;
+        }
+
+        /**
+         * A task is stale once it's cancelled, or once its ImageView has been garbage collected
+         */
+        boolean isStale() {
+            return mCancelled || (mHasImageView && mImageViewReference.get() == null);
+        }
+
+        /**
+         * Returns the bitmap a task with the same parameters would return if it's in the memory cache, so the
+         * caller can show it right away instead of starting a task. Safe to call from the UI thread: it doesn't read
+         * the file, so it may return the thumbnail of an image modified since, until a task decodes it again.
+         */
+        public static Bitmap getCachedBitmap(Context context, String path, int width, int height) {
+            return getThumbnailCache(context).getFromMemory(new ThumbnailCache.Key(path, width, height));
+        }
+
+        // Get the image from the cache or decode it, called on a worker thread.
+        Bitmap loadBitmap() {
+            ThumbnailCache cache = mContext != null ? getThumbnailCache(mContext) : null;
+            ThumbnailCache.Key key = new ThumbnailCache.Key(mPath, mTargetWidth, mTargetHeight);
+            // read before decoding, so a thumbnail decoded while the source is modified is cached as stale
+            long sourceLastModified = new File(mPath).lastModified();
+            Bitmap bitmap = cache != null ? cache.get(key, sourceLastModified) : null;
+            if (bitmap == null) {
+                bitmap = decode();
+                if (bitmap != null && cache != null) {
+                    cache.put(key, sourceLastModified, bitmap);
+                }
+            }
+            return bitmap;
+        }
+
+        private Bitmap decode() {
             BitmapFactory.Options bfo = new BitmapFactory.Options();
             bfo.inJustDecodeBounds = true;
             BitmapFactory.decodeFile(mPath, bfo);
@@ -243,7 +383,7 @@ public class ImageUtils {
                 int orientation = exif.getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
                 int angle = 0;
                 if (orientation == ExifInterface.ORIENTATION_NORMAL) { // no need to rotate
-                    return BitmapFactory.decodeFile(mPath, bfo);
+                    return BITMAP_POOL.decodeFile(mPath, bfo);
                 } else if (orientation == ExifInterface.ORIENTATION_ROTATE_90) {
                     angle = 90;
                 } else if (orientation == ExifInterface.ORIENTATION_ROTATE_180) {
@@ -256,14 +396,18 @@ public class ImageUtils {
                 mat.postRotate(angle);
 
                 try {
-                    Bitmap bmp = BitmapFactory.decodeStream(new FileInputStream(f), null, bfo);
+                    Bitmap bmp = BITMAP_POOL.decodeFile(f.getPath(), bfo);
                     if (bmp == null) {
                         AppLog.e(AppLog.T.UTILS, "can't decode bitmap: " + f.getPath());
                         return null;
                     }
                     bitmapWidth = bmp.getWidth();
                     bitmapHeight = bmp.getHeight();
-                    return Bitmap.createBitmap(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), mat, true);
+                    Bitmap rotated = Bitmap.createBitmap(bmp, 0, 0, bmp.getWidth(), bmp.getHeight(), mat, true);
+                    if (rotated != bmp) {
+                        BITMAP_POOL.put(bmp);
+                    }
+                    return rotated;
                 } catch (OutOfMemoryError oom) {
                     AppLog.e(AppLog.T.UTILS, "OutOfMemoryError Error in setting image: " + oom);
                 }
@@ -274,10 +418,9 @@ public class ImageUtils {
             return null;
         }
 
-        // Once complete, see if ImageView is still around and set bitmap.
-        @Override
-        protected void onPostExecute(Bitmap bitmap) {
-            if (mImageViewReference == null || bitmap == null) {
+        // Once complete, see if the task is still wanted and set bitmap, called on the UI thread.
+        void deliver(Bitmap bitmap) {
+            if (isStale() || bitmap == null) {
                 return;
             }
 
@@ -373,9 +516,16 @@ public class ImageUtils {
 
             if (bytes != null && bytes.length > 0) {
                 try {
-                    Bitmap resizedBitmap = BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+                    BitmapFactory.Options options = new BitmapFactory.Options();
+                    options.inJustDecodeBounds = true;
+                    BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+                    Bitmap resizedBitmap = BITMAP_POOL.decodeByteArray(bytes, 0, bytes.length, options);
                     if (resizedBitmap != null) {
-                        return getScaledBitmapAtLongestSide(resizedBitmap, targetWidth);
+                        Bitmap scaledBitmap = getScaledBitmapAtLongestSide(resizedBitmap, targetWidth);
+                        if (scaledBitmap != resizedBitmap) {
+                            BITMAP_POOL.put(resizedBitmap);
+                        }
+                        return scaledBitmap;
                     }
                 } catch (OutOfMemoryError e) {
                     AppLog.e(AppLog.T.UTILS, "OutOfMemoryError Error in setting image: " + e);
@@ -412,12 +562,17 @@ public class ImageUtils {
         return Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
     }
 
+    /**
+     * @param shrinkOnLowMemory Whether an image too large for the memory left may be written smaller than maxSize,
+     *                          instead of throwing an OutOfMemoryError
+     */
     private static boolean resizeImageAndWriteToStream(Context context,
                                                        Uri imageUri,
                                                        String fileExtension,
                                                        int maxSize,
                                                        int orientation,
                                                        int quality,
+                                                       boolean shrinkOnLowMemory,
                                                        OutputStream outStream) throws OutOfMemoryError, IOException {
         String realFilePath = MediaUtils.getRealPathFromURI(context, imageUri);
 
@@ -432,15 +587,22 @@ public class ImageUtils {
             throw e;
         }
 
-        int scale = getScaleForResizing(maxSize, optBounds);
-
-        BitmapFactory.Options optActual = new BitmapFactory.Options();
-        optActual.inSampleSize = scale;
-
-        // Get the roughly resized bitmap
-        final Bitmap bmpResized;
+        // Decode the bitmap at its exact size, rotated, allocating as few full-size bitmaps as possible
+        Bitmap bmpResized = null;
         try {
-            bmpResized = BitmapFactory.decodeFile(realFilePath, optActual);
+            if (TiledBitmapDecoder.shouldDecodeTiled(optBounds, maxSize, MAX_DECODE_SIZE)) {
+                try {
+                    bmpResized = TiledBitmapDecoder.decode(realFilePath, optBounds, maxSize, orientation,
+                                                           shrinkOnLowMemory ? MAX_DECODE_SIZE : 0, BITMAP_POOL);
+                } catch (IOException e) {
+                    AppLog.w(AppLog.T.UTILS, "Can't decode the image by tiles, decoding it at once: " + e.getMessage());
+                }
+            }
+            if (bmpResized == null && orientation == 0) {
+                bmpResized = decodeScaledBitmap(realFilePath, optBounds, maxSize);
+            } else if (bmpResized == null) {
+                bmpResized = decodeScaledAndRotatedBitmap(realFilePath, optBounds, maxSize, orientation);
+            }
         } catch (OutOfMemoryError e) {
             AppLog.e(AppLog.T.UTILS, "OutOfMemoryError Error while decoding the original image: " + realFilePath, e);
             throw e;
@@ -451,17 +613,6 @@ public class ImageUtils {
             throw new IOException("Can't decode the resized picture.");
         }
 
-        // Resize the bitmap to exact size: calculate exact scale in order to resize accurately
-        float scaleBy = getScaleImageBy(maxSize, bmpResized);
-
-        Matrix matrix = new Matrix();
-        matrix.postScale(scaleBy, scaleBy);
-
-        // apply orientation
-        if (orientation != 0) {
-            matrix.setRotate(orientation);
-        }
-
         Bitmap.CompressFormat fmt;
         if (fileExtension != null
             && (fileExtension.equals("png") || fileExtension.equals(".png"))) {
@@ -470,30 +621,92 @@ public class ImageUtils {
             fmt = Bitmap.CompressFormat.JPEG;
         }
 
-        final Bitmap bmpRotated;
         try {
-            bmpRotated =
-                    Bitmap.createBitmap(bmpResized, 0, 0, bmpResized.getWidth(), bmpResized.getHeight(), matrix, true);
-        } catch (OutOfMemoryError e) {
-            AppLog.e(AppLog.T.UTILS, "OutOfMemoryError while creating the resized bitmap", e);
-            throw e;
-        } catch (NullPointerException e) {
-            // See: https://github.com/wordpress-mobile/WordPress-Android/issues/1844
-            AppLog.e(AppLog.T.UTILS, "Bitmap.createBitmap has thrown a NPE internally. This should never happen!", e);
-            throw e;
+            return bmpResized.compress(fmt, quality, outStream);
+        } finally {
+            // the bitmap was only needed to encode the image
+            BITMAP_POOL.put(bmpResized);
+        }
+    }
+
+    /**
+     * Decodes the image scaled to maxSize on its longest side. The decoder samples the image down by a power of two
+     * and scales the sampled pixels to the exact size itself, so the result is the only bitmap allocated here, from
+     * the pool when one fits.
+     *
+     * @param optBounds The dimensions of the image, as read by an inJustDecodeBounds decode
+     */
+    private static Bitmap decodeScaledBitmap(String path, BitmapFactory.Options optBounds, int maxSize) {
+        setScaledDecodeOptions(optBounds, maxSize);
+        // the pool knows how large the bitmap will be from the bounds, the sample size and the densities
+        return BITMAP_POOL.decodeFile(path, optBounds);
+    }
+
+    /**
+     * Sets the sample size and the densities which make the decoder scale the image to maxSize on its longest side
+     *
+     * @param optBounds The dimensions and the type of the image, as read by an inJustDecodeBounds decode
+     */
+    static void setScaledDecodeOptions(BitmapFactory.Options optBounds, int maxSize) {
+        int scale = getScaleForResizing(maxSize, optBounds);
+        int sampledMaxDimension = BitmapPool.getSampledDimension(Math.max(optBounds.outWidth, optBounds.outHeight),
+                                                                 scale, optBounds.outMimeType);
+
+        optBounds.inSampleSize = scale;
+        if (maxSize > 0 && sampledMaxDimension != maxSize) {
+            // the decoder scales by inTargetDensity / inDensity
+            optBounds.inScaled = true;
+            optBounds.inDensity = sampledMaxDimension;
+            optBounds.inTargetDensity = maxSize;
+        }
+    }
+
+    /**
+     * Decodes the image sampled down by a power of two, then scales and rotates it to its exact size in a single
+     * draw, into a pooled bitmap. The sampled bitmap goes back to the pool right after.
+     *
+     * @param optBounds The dimensions of the image, as read by an inJustDecodeBounds decode
+     * @param orientation The rotation in degrees, a multiple of 90
+     */
+    private static Bitmap decodeScaledAndRotatedBitmap(String path, BitmapFactory.Options optBounds, int maxSize,
+                                                       int orientation) {
+        optBounds.inSampleSize = getScaleForResizing(maxSize, optBounds);
+        Bitmap bmpSampled = BITMAP_POOL.decodeFile(path, optBounds);
+        if (bmpSampled == null) {
+            return null;
         }
 
-        if (bmpRotated == null) {
-            // Fix an issue where bmpRotated is null even if the documentation doesn't say Bitmap.createBitmap can
-            // return null.
-            AppLog.e(AppLog.T.UTILS,
-                     "bmpRotated is null even if the documentation doesn't say Bitmap.createBitmap can return null.");
-            // See: https://github.com/wordpress-mobile/WordPress-Android/issues/1848
-            throw new IOException(
-                    "bmpRotated is null even if the documentation doesn't say Bitmap.createBitmap can return null.");
+        try {
+            RectF bounds = new RectF();
+            Matrix matrix = getScaleAndRotateMatrix(bmpSampled.getWidth(), bmpSampled.getHeight(), maxSize,
+                                                    orientation, bounds);
+            Bitmap.Config config = bmpSampled.getConfig() != null ? bmpSampled.getConfig() : Bitmap.Config.ARGB_8888;
+            Bitmap bmpRotated = BITMAP_POOL.get(Math.max(1, Math.round(bounds.width())),
+                                                Math.max(1, Math.round(bounds.height())), config);
+            new Canvas(bmpRotated).drawBitmap(bmpSampled, matrix, new Paint(Paint.FILTER_BITMAP_FLAG));
+            return bmpRotated;
+        } finally {
+            BITMAP_POOL.put(bmpSampled);
         }
+    }
 
-        return bmpRotated.compress(fmt, quality, outStream);
+    /**
+     * Returns the matrix drawing a bitmap scaled to maxSize on its longest side and rotated, with its top left corner
+     * at the origin
+     *
+     * @param outBounds Set to the bounds of the drawn bitmap
+     */
+    static Matrix getScaleAndRotateMatrix(int width, int height, int maxSize, int orientation, RectF outBounds) {
+        float scaleBy = maxSize > 0 ? getScaleImageBy(maxSize, width, height) : 1;
+        Matrix matrix = new Matrix();
+        matrix.setScale(scaleBy, scaleBy);
+        matrix.postRotate(orientation);
+        // move the rotated image back to the origin
+        outBounds.set(0, 0, width, height);
+        matrix.mapRect(outBounds);
+        matrix.postTranslate(-outBounds.left, -outBounds.top);
+        outBounds.offsetTo(0, 0);
+        return matrix;
     }
 
     /**
@@ -569,20 +782,25 @@ public class ImageUtils {
             return path;
         }
 
+        long optimizeStart = OPTIMIZE_TIMER.start();
         try {
             boolean res = resizeImageAndWriteToStream(context, srcImageUri, fileExtension, selectedMaxSize, orientation,
-                                                      quality, out);
+                                                      quality, true, out);
             if (!res) {
+                OPTIMIZE_FAILURES.increment();
                 AppLog.w(AppLog.T.MEDIA, "Failed to compress the optimized image. Use the original picture instead.");
                 return path;
             }
         } catch (IOException e) {
+            OPTIMIZE_FAILURES.increment();
             AppLog.e(AppLog.T.MEDIA, "Failed to create optimized image. Use the original picture instead.");
             return path;
         } catch (OutOfMemoryError e) {
+            OPTIMIZE_FAILURES.increment();
             AppLog.e(AppLog.T.MEDIA, "Can't optimize the picture due to low memory. Use the original picture instead.");
             return path;
         } finally {
+            OPTIMIZE_TIMER.stop(optimizeStart);
             // close the stream
             try {
                 out.flush();
@@ -678,7 +896,8 @@ public class ImageUtils {
         ByteArrayOutputStream stream = new ByteArrayOutputStream();
         try {
             boolean res =
-                    resizeImageAndWriteToStream(context, imageUri, fileExtension, maxWidth, orientation, 75, stream);
+                    resizeImageAndWriteToStream(context, imageUri, fileExtension, maxWidth, orientation, 75, true,
+                                                stream);
             if (!res) {
                 AppLog.w(AppLog.T.MEDIA, "Failed to compress the resized image. Use the full picture instead.");
                 return null;
@@ -802,7 +1021,9 @@ public class ImageUtils {
         String fileName = MediaUtils.getMediaFileName(file, mimeType);
         String fileExtension = MimeTypeMap.getFileExtensionFromUrl(fileName).toLowerCase(Locale.ROOT);
 
-        int selectedWidth = getImageSize(srcImageUri, context)[0];
+        // the longest side, so the image is rotated without being resized
+        int[] imageDimensions = getImageSize(srcImageUri, context);
+        int selectedWidth = Math.max(imageDimensions[0], imageDimensions[1]);
         if (selectedWidth == 0) {
             // Can't read the src dimensions.
             return null;
@@ -831,9 +1052,10 @@ public class ImageUtils {
         }
 
         try {
+            // the rotated image must keep its size, so it fails on low memory like the whole-image decode
             boolean res =
                     resizeImageAndWriteToStream(context, srcImageUri, fileExtension, selectedWidth, orientation, 85,
-                                                out);
+                                                false, out);
             if (!res) {
                 AppLog.w(AppLog.T.MEDIA, "Failed to compress the rotates image.");
                 return null;
@@ -880,15 +1102,15 @@ public class ImageUtils {
         return scale;
     }
 
-    private static float getScaleImageBy(float maxSize, Bitmap bmpResized) {
-        int divideBy = Math.max(bmpResized.getHeight(), bmpResized.getWidth());
+    private static float getScaleImageBy(float maxSize, int width, int height) {
+        int divideBy = Math.max(height, width);
         float percentage = maxSize / divideBy;
 
-        float proportionateHeight = bmpResized.getHeight() * percentage;
+        float proportionateHeight = height * percentage;
         int finalHeight = (int) Math.rint(proportionateHeight);
 
-        float scaleWidth = maxSize / bmpResized.getWidth();
-        float scaleHeight = ((float) finalHeight) / bmpResized.getHeight();
+        float scaleWidth = maxSize / width;
+        float scaleHeight = ((float) finalHeight) / height;
 
         return Math.min(scaleWidth, scaleHeight);
     }
@@ -7,6 +7,7 @@ import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.helpers.profiling.Timer;
 
 import java.util.ArrayList;
 
@@ -19,12 +20,22 @@ public class JSONUtils {
 
     private static final String JSON_NULL_STR = "null";
     private static final String TAG = "JSONUtils";
+    private static final Timer QUERY_TIMER = ProfilingUtils.getMetrics().timer("json.query");
 
     /**
      * Given a JSONObject and a key path (e.g property.child) and a default it will
      * traverse the object graph and pull out the desired property
      */
     public static <U> U queryJSON(JSONObject source, String query, U defaultObject) {
+        long start = QUERY_TIMER.start();
+        try {
+            return queryObject(source, query, defaultObject);
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
+    }
+
+    private static <U> U queryObject(JSONObject source, String query, U defaultObject) {
         if (source == null) {
             AppLog.e(T.UTILS, "Parameter source is null, can't query a null object");
             return defaultObject;
@@ -45,9 +56,8 @@ public class JSONUtils {
                 if (result.getClass().isAssignableFrom(defaultObject.getClass())) {
                     return (U) result;
                 } else {
-                    AppLog.w(T.UTILS, String.format(
-                            "The returned object type %s is not assignable to the type %s. Using default!",
-                            result.getClass(), defaultObject.getClass()));
+                    AppLog.w(T.UTILS, "The returned object type %s is not assignable to the type %s. Using default!",
+                            result.getClass(), defaultObject.getClass());
                     return defaultObject;
                 }
             } catch (java.lang.ClassCastException e) {
@@ -68,9 +78,9 @@ public class JSONUtils {
         String key = query.substring(0, endQuery);
         try {
             if (nextQuery.indexOf(QUERY_SEPERATOR) == 0) {
-                return queryJSON(source.getJSONObject(key), nextQuery.substring(1), defaultObject);
+                return queryObject(source.getJSONObject(key), nextQuery.substring(1), defaultObject);
             } else if (nextQuery.indexOf(QUERY_ARRAY_INDEX_START) == 0) {
-                return queryJSON(source.getJSONArray(key), nextQuery, defaultObject);
+                return queryArray(source.getJSONArray(key), nextQuery, defaultObject);
             } else if (!nextQuery.equals("")) {
                 return defaultObject;
             }
@@ -78,9 +88,8 @@ public class JSONUtils {
             if (result.getClass().isAssignableFrom(defaultObject.getClass())) {
                 return (U) result;
             } else {
-                AppLog.w(T.UTILS,
-                         String.format("The returned object type %s is not assignable to the type %s. Using default!",
-                                       result.getClass(), defaultObject.getClass()));
+                AppLog.w(T.UTILS, "The returned object type %s is not assignable to the type %s. Using default!",
+                         result.getClass(), defaultObject.getClass());
                 return defaultObject;
             }
         } catch (java.lang.ClassCastException e) {
@@ -99,6 +108,15 @@ public class JSONUtils {
      * the list as well as "last" and "first" as more explicit references to "0" and "-1"
      */
     public static <U> U queryJSON(JSONArray source, String query, U defaultObject) {
+        long start = QUERY_TIMER.start();
+        try {
+            return queryArray(source, query, defaultObject);
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
+    }
+
+    private static <U> U queryArray(JSONArray source, String query, U defaultObject) {
         if (source == null) {
             AppLog.e(T.UTILS, "Parameter source is null, can't query a null object");
             return defaultObject;
@@ -130,21 +148,20 @@ public class JSONUtils {
         String remainingQuery = query.substring(indexEnd + 1);
         try {
             if (remainingQuery.indexOf(QUERY_ARRAY_INDEX_START) == 0) {
-                return queryJSON(source.getJSONArray(index), remainingQuery, defaultObject);
+                return queryArray(source.getJSONArray(index), remainingQuery, defaultObject);
             } else if (remainingQuery.indexOf(QUERY_SEPERATOR) == 0) {
-                return queryJSON(source.getJSONObject(index), remainingQuery.substring(1), defaultObject);
+                return queryObject(source.getJSONObject(index), remainingQuery.substring(1), defaultObject);
             } else if (!remainingQuery.equals("")) {
                 // TODO throw an exception since the query isn't valid?
-                AppLog.w(T.UTILS, String.format("Incorrect query for next object %s", remainingQuery));
+                AppLog.w(T.UTILS, "Incorrect query for next object %s", remainingQuery);
                 return defaultObject;
             }
             Object result = source.get(index);
             if (result.getClass().isAssignableFrom(defaultObject.getClass())) {
                 return (U) result;
             } else {
-                AppLog.w(T.UTILS,
-                         String.format("The returned object type %s is not assignable to the type %s. Using default!",
-                                       result.getClass(), defaultObject.getClass()));
+                AppLog.w(T.UTILS, "The returned object type %s is not assignable to the type %s. Using default!",
+                         result.getClass(), defaultObject.getClass());
                 return defaultObject;
             }
         } catch (java.lang.ClassCastException e) {
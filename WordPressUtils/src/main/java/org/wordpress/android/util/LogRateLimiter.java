@@ -0,0 +1,87 @@
+package org.wordpress.android.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token buckets limiting how many messages a single AppLog tag may log, see
+ * {@link AppLog#setRateLimit(AppLog.T, int, double)}.
+ *
+ * Messages whose call site is known, e.g. the format string of AppLog.d(T, String, Object...), get a bucket per
+ * call site, so one chatty loop doesn't silence the rest of the tag. Other messages share the bucket of the tag.
+ */
+class LogRateLimiter {
+    /**
+     * Returned by {@link #tryAcquire(Object)} when the message must be dropped
+     */
+    static final int SUPPRESSED = -1;
+
+    // call sites are usually string literals, this only guards against keys built at runtime
+    private static final int MAX_CALL_SITES = 64;
+
+    private final int mBurstSize;
+    private final double mTokensPerNano;
+    private final TokenBucket mTagBucket;
+    private final ConcurrentHashMap<Object, TokenBucket> mCallSiteBuckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param burstSize The number of messages which may be logged in a row before the rate applies
+     * @param messagesPerSecond The sustained number of messages allowed per second
+     */
+    LogRateLimiter(int burstSize, double messagesPerSecond) {
+        if (burstSize <= 0 || messagesPerSecond <= 0) {
+            throw new IllegalArgumentException("burstSize and messagesPerSecond must be greater than zero");
+        }
+        mBurstSize = burstSize;
+        mTokensPerNano = messagesPerSecond / 1_000_000_000d;
+        mTagBucket = new TokenBucket();
+    }
+
+    /**
+     * Takes a token from the bucket of the call site.
+     * @param callSite Identifies where the message is logged from, or null to use the bucket of the tag
+     * @return {@link #SUPPRESSED} if the message must be dropped, otherwise the number of messages dropped from the
+     * same bucket since the previous one was logged
+     */
+    int tryAcquire(@Nullable Object callSite) {
+        return bucketFor(callSite).tryAcquire(System.nanoTime());
+    }
+
+    private TokenBucket bucketFor(@Nullable Object callSite) {
+        if (callSite == null) {
+            return mTagBucket;
+        }
+        TokenBucket bucket = mCallSiteBuckets.get(callSite);
+        if (bucket == null) {
+            if (mCallSiteBuckets.size() >= MAX_CALL_SITES) {
+                return mTagBucket;
+            }
+            bucket = new TokenBucket();
+            TokenBucket existing = mCallSiteBuckets.putIfAbsent(callSite, bucket);
+            if (existing != null) {
+                bucket = existing;
+            }
+        }
+        return bucket;
+    }
+
+    private class TokenBucket {
+        private double mTokens = mBurstSize;
+        private long mLastRefillNanos = System.nanoTime();
+        private int mSuppressed;
+
+        synchronized int tryAcquire(long nowNanos) {
+            mTokens = Math.min(mBurstSize, mTokens + (nowNanos - mLastRefillNanos) * mTokensPerNano);
+            mLastRefillNanos = nowNanos;
+            if (mTokens < 1) {
+                mSuppressed++;
+                return SUPPRESSED;
+            }
+            mTokens--;
+            int suppressed = mSuppressed;
+            mSuppressed = 0;
+            return suppressed;
+        }
+    }
+}
@@ -3,14 +3,24 @@ package org.wordpress.android.util;
 import android.os.SystemClock;
 
 import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.helpers.profiling.MetricsExporter;
+import org.wordpress.android.util.helpers.profiling.MetricsRegistry;
+import org.wordpress.android.util.helpers.profiling.SamplingPolicy;
+import org.wordpress.android.util.helpers.profiling.Span;
+import org.wordpress.android.util.helpers.profiling.Tracer;
 
 import java.util.ArrayList;
 
 /**
  * forked from android.util.TimingLogger to use AppLog instead of Log + new static interface.
+ *
+ * The static start/split/dump interface keeps one session per thread. Use {@link #startSpan(String)} to time nested
+ * operations or work spread over several threads.
  */
 public class ProfilingUtils {
-    private static ProfilingUtils sInstance;
+    private static final ThreadLocal<ProfilingUtils> INSTANCES = new ThreadLocal<>();
+    private static final MetricsRegistry METRICS = new MetricsRegistry();
+    private static final Tracer TRACER = new Tracer(METRICS);
 
     private String mLabel;
     private ArrayList<Long> mSplits;
@@ -32,11 +42,75 @@ public class ProfilingUtils {
         getInstance().reset(null);
     }
 
+    /**
+     * Returns the registry of the metrics recorded by the hot paths of this library, which the app can also use
+     * for its own metrics. Safe to use from any thread.
+     */
+    public static MetricsRegistry getMetrics() {
+        return METRICS;
+    }
+
+    /**
+     * Returns the tracer which starts the spans of {@link #startSpan(String)}, e.g. to add a SpanListener.
+     */
+    public static Tracer getTracer() {
+        return TRACER;
+    }
+
+    /**
+     * Starts a span, nested in the span open on the current thread if any. Close it on the same thread, ideally
+     * with try-with-resources:
+     * <pre>
+     * try (Span span = ProfilingUtils.startSpan("upload")) {
+     *     ...
+     * }
+     * </pre>
+     */
+    public static Span startSpan(String name) {
+        return TRACER.startSpan(name);
+    }
+
+    /**
+     * Chooses which span trees are recorded, e.g. {@code SamplingPolicy.oneIn(100)} in release builds. Spans which
+     * aren't sampled don't allocate anything. Default is {@link SamplingPolicy#ALWAYS}.
+     */
+    public static void setSamplingPolicy(SamplingPolicy samplingPolicy) {
+        TRACER.setSamplingPolicy(samplingPolicy);
+    }
+
+    /**
+     * Writes a closed span and its children to AppLog, with their durations.
+     */
+    public static void dump(Span span) {
+        for (String line : span.toLines()) {
+            AppLog.d(T.PROFILING, line);
+        }
+    }
+
+    /**
+     * Writes the current value of every metric to AppLog.
+     */
+    public static void dumpMetrics() {
+        for (String line : METRICS.snapshot().toLines()) {
+            AppLog.d(T.PROFILING, line);
+        }
+    }
+
+    /**
+     * Hands the metrics aggregated since the previous export to the exporter, then starts over, e.g. once per
+     * session. Gauges keep their value.
+     */
+    public static void exportMetrics(MetricsExporter exporter) {
+        exporter.export(METRICS.snapshotAndReset());
+    }
+
     private static ProfilingUtils getInstance() {
-        if (sInstance == null) {
-            sInstance = new ProfilingUtils();
+        ProfilingUtils instance = INSTANCES.get();
+        if (instance == null) {
+            instance = new ProfilingUtils();
+            INSTANCES.set(instance);
         }
-        return sInstance;
+        return instance;
     }
 
     public ProfilingUtils() {
@@ -8,11 +8,14 @@ import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteStatement;
 
 import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.helpers.profiling.Timer;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class SqlUtils {
+    private static final Timer QUERY_TIMER = ProfilingUtils.getMetrics().timer("sql.query");
+
     private SqlUtils() {
         throw new AssertionError();
     }
@@ -44,10 +47,13 @@ public class SqlUtils {
      * wrapper for DatabaseUtils.longForQuery() which returns 0 if query returns no rows
      */
     public static long longForQuery(SQLiteDatabase db, String query, String[] selectionArgs) {
+        long start = QUERY_TIMER.start();
         try {
             return DatabaseUtils.longForQuery(db, query, selectionArgs);
         } catch (SQLiteDoneException e) {
             return 0;
+        } finally {
+            QUERY_TIMER.stop(start);
         }
     }
 
@@ -65,10 +71,13 @@ public class SqlUtils {
      * wrapper for DatabaseUtils.stringForQuery(), returns "" if query returns no rows
      */
     public static String stringForQuery(SQLiteDatabase db, String query, String[] selectionArgs) {
+        long start = QUERY_TIMER.start();
         try {
             return DatabaseUtils.stringForQuery(db, query, selectionArgs);
         } catch (SQLiteDoneException e) {
             return "";
+        } finally {
+            QUERY_TIMER.stop(start);
         }
     }
 
@@ -76,7 +85,12 @@ public class SqlUtils {
      * returns the number of rows in the passed table
      */
     public static long getRowCount(SQLiteDatabase db, String tableName) {
-        return DatabaseUtils.queryNumEntries(db, tableName);
+        long start = QUERY_TIMER.start();
+        try {
+            return DatabaseUtils.queryNumEntries(db, tableName);
+        } finally {
+            QUERY_TIMER.stop(start);
+        }
     }
 
     /*
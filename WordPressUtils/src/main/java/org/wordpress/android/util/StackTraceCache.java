@@ -0,0 +1,94 @@
+package org.wordpress.android.util;
+
+import androidx.annotation.NonNull;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Remembers the stack traces AppLog recently logged, so an exception repeated in a retry loop is rendered once and
+ * later occurrences are logged as a short reference to it.
+ *
+ * Traces are identified by a fingerprint of the exception classes and stack frames of the whole cause chain, so the
+ * same failure with a different message is still considered a repeat.
+ */
+class StackTraceCache {
+    // the full trace is logged again every so often, so a bounded log still contains a copy of it
+    static final int FULL_TRACE_INTERVAL = 100;
+
+    private static final int DEFAULT_MAX_TRACES = 32;
+
+    private final Map<Long, CachedTrace> mTraces;
+
+    private static class CachedTrace {
+        final String mId;
+        final String mStackTrace;
+        int mOccurrences;
+
+        CachedTrace(String id, String stackTrace) {
+            mId = id;
+            mStackTrace = stackTrace;
+        }
+    }
+
+    StackTraceCache() {
+        this(DEFAULT_MAX_TRACES);
+    }
+
+    StackTraceCache(final int maxTraces) {
+        mTraces = new LinkedHashMap<Long, CachedTrace>(maxTraces, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CachedTrace> eldest) {
+                return size() > maxTraces;
+            }
+        };
+    }
+
+    /**
+     * Returns the log message for the stack trace of the throwable: the full trace the first time it's seen, and a
+     * reference with the number of occurrences afterwards.
+     */
+    synchronized String describe(@NonNull Throwable throwable) {
+        long fingerprint = fingerprint(throwable);
+        CachedTrace trace = mTraces.get(fingerprint);
+        if (trace == null) {
+            trace = new CachedTrace(Long.toHexString(fingerprint), render(throwable));
+            mTraces.put(fingerprint, trace);
+        }
+        int occurrence = trace.mOccurrences++;
+        if (occurrence % FULL_TRACE_INTERVAL == 0) {
+            return "StackTrace #" + trace.mId + ": " + trace.mStackTrace;
+        }
+        return "StackTrace: same as #" + trace.mId + " (seen " + (occurrence + 1) + " times)";
+    }
+
+    synchronized void clear() {
+        mTraces.clear();
+    }
+
+    private static long fingerprint(Throwable throwable) {
+        long hash = 1125899906842597L;
+        Set<Throwable> visited = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+        for (Throwable current = throwable; current != null && visited.add(current); current = current.getCause()) {
+            hash = 31 * hash + current.getClass().getName().hashCode();
+            for (StackTraceElement element : current.getStackTrace()) {
+                hash = 31 * hash + element.hashCode();
+            }
+        }
+        // spread the bits so similar traces don't get similar looking ids
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        return hash ^ (hash >>> 33);
+    }
+
+    private static String render(Throwable throwable) {
+        StringWriter errors = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(errors));
+        return errors.toString();
+    }
+}
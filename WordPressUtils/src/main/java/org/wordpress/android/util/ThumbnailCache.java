@@ -0,0 +1,328 @@
+package org.wordpress.android.util;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.helpers.profiling.Counter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thumbnails decoded by ImageUtils, kept so showing the same images again doesn't decode them again, see
+ * {@link ImageUtils#getThumbnailCache(android.content.Context)}.
+ *
+ * The memory tier is an LRU of decoded bitmaps, sized in bytes, which can be queried from the UI thread. Below it,
+ * the disk tier keeps the thumbnails compressed in the cache directory, so they survive the memory tier being trimmed
+ * and the process being killed. Thumbnails are keyed by the path of the source and the target size, and are rotated
+ * according to the EXIF data of the source.
+ *
+ * The lookups of worker threads also pass the last modification time of the source, so an edited image is never
+ * served from them, and its stale thumbnail is dropped. Lookups from the UI thread don't read the file: they may
+ * serve the stale thumbnail until a worker thread looked the image up again.
+ *
+ * Cached bitmaps are shared by every caller asking for the same thumbnail: they must not be modified, recycled or
+ * put in the BitmapPool.
+ */
+public class ThumbnailCache {
+    private static final int DISK_QUALITY = 90;
+    // thumbnails being written, which the disk tier doesn't count until they're renamed
+    private static final String TMP_EXTENSION = ".tmp";
+    // the disk tier is trimmed below its budget, so it isn't trimmed again by the next put
+    private static final double DISK_TRIM_RATIO = 0.9;
+
+    private static final Counter MEMORY_HITS = ProfilingUtils.getMetrics().counter("thumbnail_cache.memory_hits");
+    private static final Counter DISK_HITS = ProfilingUtils.getMetrics().counter("thumbnail_cache.disk_hits");
+    private static final Counter MISSES = ProfilingUtils.getMetrics().counter("thumbnail_cache.misses");
+
+    private final LruCache<Key, Entry> mMemoryCache;
+    private final File mDirectory;
+    private final long mMaxDiskSize;
+    private final Object mDiskLock = new Object();
+    // -1 until the directory is scanned, on the first disk access
+    private long mDiskSize = -1;
+
+    /**
+     * Identifies a thumbnail: the source file scaled to a target size
+     */
+    public static final class Key {
+        private final String mPath;
+        private final int mWidth;
+        private final int mHeight;
+
+        public Key(@NonNull String path, int width, int height) {
+            mPath = path;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        /**
+         * Returns the name of the thumbnail in the disk tier, which changes when the source is modified
+         */
+        String getFileName(long sourceLastModified) {
+            return StringUtils.getMd5Hash(mPath + "|" + sourceLastModified + "|" + mWidth + "x" + mHeight);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return mWidth == key.mWidth && mHeight == key.mHeight && mPath.equals(key.mPath);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mPath.hashCode();
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            return result;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return mPath + "|" + mWidth + "x" + mHeight;
+        }
+    }
+
+    /**
+     * A thumbnail of the memory tier, and the last modification time of the source it was decoded from
+     */
+    private static final class Entry {
+        final Bitmap mBitmap;
+        final long mSourceLastModified;
+
+        Entry(Bitmap bitmap, long sourceLastModified) {
+            mBitmap = bitmap;
+            mSourceLastModified = sourceLastModified;
+        }
+    }
+
+    /**
+     * @param directory The directory of the disk tier, which the cache manages on its own
+     * @param maxMemorySize The maximum number of bytes used by the bitmaps of the memory tier
+     * @param maxDiskSize The maximum number of bytes used by the files of the disk tier, 0 to disable it
+     */
+    public ThumbnailCache(@NonNull File directory, int maxMemorySize, long maxDiskSize) {
+        mDirectory = directory;
+        mMaxDiskSize = maxDiskSize;
+        mMemoryCache = new LruCache<Key, Entry>(maxMemorySize) {
+            @Override
+            protected int sizeOf(Key key, Entry entry) {
+                return entry.mBitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Returns the thumbnail if it's in the memory tier, without checking whether the source was modified since.
+     * Safe to call from the UI thread.
+     */
+    @Nullable
+    public Bitmap getFromMemory(@NonNull Key key) {
+        Entry entry = mMemoryCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        MEMORY_HITS.increment();
+        return entry.mBitmap;
+    }
+
+    /**
+     * Returns the thumbnail from the memory tier, or decodes it from the disk tier, unless it was decoded before
+     * the source was last modified. Must be called from a worker thread.
+     *
+     * @param sourceLastModified The last modification time of the source, as returned by File.lastModified()
+     */
+    @Nullable
+    public Bitmap get(@NonNull Key key, long sourceLastModified) {
+        Entry entry = mMemoryCache.get(key);
+        if (entry != null && entry.mSourceLastModified == sourceLastModified) {
+            MEMORY_HITS.increment();
+            return entry.mBitmap;
+        }
+        Bitmap bitmap = readFromDisk(key, sourceLastModified);
+        if (bitmap != null) {
+            DISK_HITS.increment();
+            mMemoryCache.put(key, new Entry(bitmap, sourceLastModified));
+        } else {
+            MISSES.increment();
+            if (entry != null) {
+                // stale, so the UI thread doesn't get it anymore
+                mMemoryCache.remove(key);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Adds the thumbnail to both tiers. Must be called from a worker thread, since it compresses the thumbnail.
+     *
+     * @param sourceLastModified The last modification time of the source the thumbnail was decoded from
+     */
+    public void put(@NonNull Key key, long sourceLastModified, @NonNull Bitmap bitmap) {
+        mMemoryCache.put(key, new Entry(bitmap, sourceLastModified));
+        writeToDisk(key, sourceLastModified, bitmap);
+    }
+
+    /**
+     * Releases the memory tier in response to ComponentCallbacks2.onTrimMemory(): entirely once the app is in the
+     * background, half of it when its UI is hidden. The disk tier is kept.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            mMemoryCache.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+        }
+    }
+
+    /**
+     * Empties both tiers
+     */
+    public void clear() {
+        mMemoryCache.evictAll();
+        synchronized (mDiskLock) {
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+                }
+            }
+            mDiskSize = 0;
+        }
+    }
+
+    @Nullable
+    private Bitmap readFromDisk(Key key, long sourceLastModified) {
+        if (mMaxDiskSize <= 0) {
+            return null;
+        }
+        File file = new File(mDirectory, key.getFileName(sourceLastModified));
+        if (!file.isFile()) {
+            return null;
+        }
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        Bitmap bitmap = ImageUtils.getBitmapPool().decodeFile(file.getPath(), options);
+        if (bitmap == null) {
+            AppLog.w(T.UTILS, "Can't decode the cached thumbnail of " + key.mPath);
+            deleteFromDisk(file);
+            return null;
+        }
+        // the disk tier is trimmed by last modification time, which makes it an LRU
+        //noinspection ResultOfMethodCallIgnored
+        file.setLastModified(System.currentTimeMillis());
+        return bitmap;
+    }
+
+    private void writeToDisk(Key key, long sourceLastModified, Bitmap bitmap) {
+        if (mMaxDiskSize <= 0 || (!mDirectory.isDirectory() && !mDirectory.mkdirs())) {
+            return;
+        }
+        File file = new File(mDirectory, key.getFileName(sourceLastModified));
+        // written to a temporary file first, so a thumbnail being written is never read
+        File tmp = new File(mDirectory, file.getName() + TMP_EXTENSION);
+        Bitmap.CompressFormat format = bitmap.hasAlpha() ? Bitmap.CompressFormat.PNG : Bitmap.CompressFormat.JPEG;
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!bitmap.compress(format, DISK_QUALITY, out)) {
+                throw new IOException("Can't compress the thumbnail");
+            }
+        } catch (IOException e) {
+            AppLog.w(T.UTILS, "Can't write the cached thumbnail of " + key.mPath + ": " + e.getMessage());
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        synchronized (mDiskLock) {
+            long diskSize = getDiskSize() - file.length();
+            if (!tmp.renameTo(file)) {
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                return;
+            }
+            mDiskSize = diskSize + file.length();
+            if (mDiskSize > mMaxDiskSize) {
+                trimDisk((long) (mMaxDiskSize * DISK_TRIM_RATIO));
+            }
+        }
+    }
+
+    private void deleteFromDisk(File file) {
+        synchronized (mDiskLock) {
+            long length = file.length();
+            if (file.delete() && mDiskSize >= 0) {
+                mDiskSize -= length;
+            }
+        }
+    }
+
+    private long getDiskSize() {
+        if (mDiskSize < 0) {
+            mDiskSize = 0;
+            File[] files = mDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    if (!isTemporary(file)) {
+                        mDiskSize += file.length();
+                    }
+                }
+            }
+        }
+        return mDiskSize;
+    }
+
+    private void trimDisk(long maxSize) {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+        // read once, since they change when thumbnails are read concurrently
+        final Map<File, Long> lastModified = new HashMap<>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(lastModified.get(file1), lastModified.get(file2));
+            }
+        });
+        for (File file : files) {
+            if (mDiskSize <= maxSize) {
+                break;
+            }
+            if (isTemporary(file)) {
+                // being written by another thread, which renames it once it's done
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                mDiskSize -= length;
+            }
+        }
+    }
+
+    private static boolean isTemporary(File file) {
+        return file.getName().endsWith(TMP_EXTENSION);
+    }
+}
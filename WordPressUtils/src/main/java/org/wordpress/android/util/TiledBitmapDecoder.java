@@ -0,0 +1,182 @@
+package org.wordpress.android.util;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+
+import org.wordpress.android.util.AppLog.T;
+import org.wordpress.android.util.helpers.profiling.Counter;
+
+import java.io.IOException;
+
+/**
+ * Decodes images too large to be decoded at once, like panoramas, with BitmapRegionDecoder.
+ *
+ * The image is decoded tile by tile, each tile sampled down by a power of two, then scaled and rotated straight into
+ * the result. Besides the result, the memory used is bounded by the size of a tile rather than by the size of the
+ * image. When even the result can't be allocated, it's scaled down to fit the memory budget if the caller allows it.
+ */
+final class TiledBitmapDecoder {
+    // in sampled pixels, so a tile uses 1MB
+    private static final int TILE_SIZE = 512;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private static final Counter TILED_DECODES = ProfilingUtils.getMetrics().counter("image.tiled_decodes");
+
+    private TiledBitmapDecoder() {
+    }
+
+    /**
+     * Returns true when the image, sampled down for maxSize like ImageUtils does, would use more than maxBytes
+     *
+     * @param bounds The dimensions of the image, as read by an inJustDecodeBounds decode
+     */
+    static boolean shouldDecodeTiled(@NonNull BitmapFactory.Options bounds, int maxSize, long maxBytes) {
+        int sampleSize = ImageUtils.getScaleForResizing(maxSize, bounds);
+        long sampledWidth = (bounds.outWidth + sampleSize - 1) / sampleSize;
+        long sampledHeight = (bounds.outHeight + sampleSize - 1) / sampleSize;
+        return sampledWidth * sampledHeight * BYTES_PER_PIXEL > maxBytes;
+    }
+
+    /**
+     * Decodes the image scaled to maxSize on its longest side, and rotated.
+     *
+     * @param bounds The dimensions of the image, as read by an inJustDecodeBounds decode
+     * @param orientation The rotation in degrees, a multiple of 90
+     * @param maxBytes The size the result is scaled down to when a result of maxSize can't be allocated, or 0 to
+     *                 throw the OutOfMemoryError instead
+     * @throws IOException if BitmapRegionDecoder doesn't support the image
+     */
+    @NonNull
+    static Bitmap decode(@NonNull String path, @NonNull BitmapFactory.Options bounds, int maxSize, int orientation,
+                         long maxBytes, @NonNull BitmapPool pool) throws IOException {
+        return decode(path, bounds, maxSize, orientation, maxBytes, pool, TILE_SIZE);
+    }
+
+    /**
+     * Decodes the image like {@link #decode(String, BitmapFactory.Options, int, int, long, BitmapPool)} with tiles
+     * of tileSize sampled pixels
+     */
+    @NonNull
+    static Bitmap decode(@NonNull String path, @NonNull BitmapFactory.Options bounds, int maxSize, int orientation,
+                         long maxBytes, @NonNull BitmapPool pool, int tileSize) throws IOException {
+        int width = bounds.outWidth;
+        int height = bounds.outHeight;
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Can't read the dimensions of " + path);
+        }
+
+        BitmapRegionDecoder decoder = newRegionDecoder(path);
+        if (decoder == null) {
+            throw new IOException("Can't decode " + path + " by tiles");
+        }
+
+        int longestSide = Math.max(width, height);
+        int targetSide = maxSize > 0 ? Math.min(maxSize, longestSide) : longestSide;
+        Bitmap result = null;
+        Bitmap tile = null;
+        try {
+            try {
+                result = allocateResult(width, height, targetSide, orientation, pool);
+            } catch (OutOfMemoryError e) {
+                int fittingSide = (int) (longestSide * Math.sqrt((double) maxBytes / BYTES_PER_PIXEL / width / height));
+                if (maxBytes <= 0 || fittingSide >= targetSide) {
+                    throw e;
+                }
+                AppLog.w(T.UTILS, "Can't allocate the decoded image, scaling it to " + fittingSide + "px instead");
+                targetSide = Math.max(1, fittingSide);
+                result = allocateResult(width, height, targetSide, orientation, pool);
+            }
+
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = ImageUtils.getScaleForResizing(targetSide, bounds);
+            options.inPreferredConfig = Bitmap.Config.ARGB_8888;
+            int sampleSize = options.inSampleSize;
+
+            // draw the sampled tiles in the coordinates of the sampled image, mapped to the result
+            float scale = (float) targetSide / longestSide * sampleSize;
+            Matrix matrix = new Matrix();
+            matrix.setScale(scale, scale);
+            matrix.postRotate(orientation);
+            RectF resultBounds = new RectF(0, 0, (float) width / sampleSize, (float) height / sampleSize);
+            matrix.mapRect(resultBounds);
+            matrix.postTranslate(-resultBounds.left, -resultBounds.top);
+            Canvas canvas = new Canvas(result);
+            canvas.concat(matrix);
+
+            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+            int tileSourceSize = tileSize * sampleSize;
+            Rect region = new Rect();
+            Rect src = new Rect();
+            RectF dst = new RectF();
+            tile = pool.get(tileSize, tileSize, Bitmap.Config.ARGB_8888);
+            for (int top = 0; top < height; top += tileSourceSize) {
+                for (int left = 0; left < width; left += tileSourceSize) {
+                    region.set(left, top, Math.min(left + tileSourceSize, width),
+                               Math.min(top + tileSourceSize, height));
+                    tile = decodeRegion(decoder, region, options, tile);
+                    // the decoder draws the region in the top left corner of the tile
+                    int tileWidth = Math.min((region.width() + sampleSize - 1) / sampleSize, tile.getWidth());
+                    int tileHeight = Math.min((region.height() + sampleSize - 1) / sampleSize, tile.getHeight());
+                    src.set(0, 0, tileWidth, tileHeight);
+                    dst.set(left / sampleSize, top / sampleSize, left / sampleSize + tileWidth,
+                            top / sampleSize + tileHeight);
+                    canvas.drawBitmap(tile, src, dst, paint);
+                }
+            }
+            TILED_DECODES.increment();
+
+            Bitmap decoded = result;
+            result = null;
+            return decoded;
+        } finally {
+            decoder.recycle();
+            pool.put(tile);
+            // only set when the decode failed
+            pool.put(result);
+        }
+    }
+
+    private static Bitmap allocateResult(int width, int height, int targetSide, int orientation, BitmapPool pool) {
+        float scale = (float) targetSide / Math.max(width, height);
+        int resultWidth = Math.max(1, Math.round(width * scale));
+        int resultHeight = Math.max(1, Math.round(height * scale));
+        if (orientation % 180 != 0) {
+            return pool.get(resultHeight, resultWidth, Bitmap.Config.ARGB_8888);
+        }
+        return pool.get(resultWidth, resultHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    private static Bitmap decodeRegion(BitmapRegionDecoder decoder, Rect region, BitmapFactory.Options options,
+                                       Bitmap tile) throws IOException {
+        options.inBitmap = tile;
+        Bitmap decoded;
+        try {
+            decoded = decoder.decodeRegion(region, options);
+        } catch (IllegalArgumentException e) {
+            // the tile can't be decoded into, e.g. because the image is decoded with more bytes per pixel
+            options.inBitmap = null;
+            decoded = decoder.decodeRegion(region, options);
+        }
+        if (decoded == null) {
+            throw new IOException("Can't decode the region " + region);
+        }
+        return decoded;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static BitmapRegionDecoder newRegionDecoder(String path) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            return BitmapRegionDecoder.newInstance(path);
+        }
+        return BitmapRegionDecoder.newInstance(path, false);
+    }
+}
@@ -0,0 +1,94 @@
+package org.wordpress.android.util.helpers.logfile
+
+import org.wordpress.android.util.AppLog
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.IOException
+import java.nio.ByteBuffer
+
+/**
+ * Layout of [LogFileFormat.BINARY] log files.
+ *
+ * A file starts with the [MAGIC] bytes and a [VERSION] byte, followed by records made of the timestamp in
+ * milliseconds (long), the tag and level ordinals (one byte each, [NO_ORDINAL] for untagged records), the length
+ * of the message in bytes (int) and the UTF-8 encoded message. All values are big-endian.
+ *
+ * Tags and levels are stored by ordinal, so new values must only be appended to [AppLog.T] and [AppLog.LogLevel].
+ *
+ * [LogFileFormat.MAPPED] segments are preallocated and zero-filled, an all-zero record header marks the end of
+ * their data.
+ */
+object BinaryLogFormat {
+    @JvmField val MAGIC = byteArrayOf('W'.code.toByte(), 'P'.code.toByte(), 'L'.code.toByte(), 'G'.code.toByte())
+    const val VERSION: Byte = 1
+    const val FILE_HEADER_SIZE = 5
+    const val RECORD_HEADER_SIZE = 14
+    const val NO_ORDINAL: Byte = -1
+
+    private val tags = AppLog.T.values()
+    private val levels = AppLog.LogLevel.values()
+
+    fun writeFileHeader(buffer: ByteBuffer) {
+        buffer.put(MAGIC).put(VERSION)
+    }
+
+    fun writeRecordHeader(buffer: ByteBuffer, record: LogRecord, messageLength: Int) {
+        buffer.putLong(record.timestamp)
+                .put(record.tag?.ordinal?.toByte() ?: NO_ORDINAL)
+                .put(record.level?.ordinal?.toByte() ?: NO_ORDINAL)
+                .putInt(messageLength)
+    }
+
+    /**
+     * Returns true if the stream starts with a binary log file header of a supported version.
+     */
+    fun readFileHeader(input: DataInputStream): Boolean {
+        val header = ByteArray(FILE_HEADER_SIZE)
+        return try {
+            input.readFully(header)
+            header.copyOfRange(0, MAGIC.size).contentEquals(MAGIC) && header[MAGIC.size] == VERSION
+        } catch (eof: EOFException) {
+            false
+        }
+    }
+
+    /**
+     * Reads the next record, or returns null at the end of the data. A record truncated by a crash while it was
+     * being written is treated as the end of the data.
+     *
+     * @param scratch: A reusable buffer for the message bytes, grown as needed
+     */
+    @Throws(IOException::class)
+    fun readRecord(input: DataInputStream, scratch: ScratchBuffer): LogRecord? {
+        return try {
+            val timestamp = input.readLong()
+            val tag = tags.getOrNull(input.readByte().toInt())
+            val level = levels.getOrNull(input.readByte().toInt())
+            val length = input.readInt()
+            if (length < 0 || (timestamp == 0L && length == 0)) {
+                return null
+            }
+            val bytes = scratch.ensureCapacity(length)
+            input.readFully(bytes, 0, length)
+            LogRecord(timestamp, tag, level, String(bytes, 0, length, Charsets.UTF_8))
+        } catch (eof: EOFException) {
+            null
+        }
+    }
+
+    /**
+     * A byte array reused across [readRecord] calls to avoid allocating one per record.
+     */
+    class ScratchBuffer {
+        private var bytes = ByteArray(INITIAL_SCRATCH_SIZE)
+
+        fun ensureCapacity(size: Int): ByteArray {
+            if (bytes.size < size) {
+                bytes = ByteArray(maxOf(size, bytes.size * 2))
+            }
+            return bytes
+        }
+    }
+
+    private const val INITIAL_SCRATCH_SIZE = 1024
+}
@@ -0,0 +1,74 @@
+package org.wordpress.android.util.helpers.logfile
+
+/**
+ * Formats log timestamps as `MMM-dd kk:mm` in UTC, the layout `AppLog` has always used, e.g. `Jul-30 10:54`.
+ *
+ * The format only has minute resolution, so the text of the last rendered minute is cached and reused for the
+ * following entries without allocating. It's rendered by hand instead of with a `SimpleDateFormat`, which makes
+ * the formatter safe to use from any thread.
+ */
+object LogDateFormatter {
+    private const val MILLIS_PER_MINUTE = 60_000L
+    private const val MINUTES_PER_DAY = 1440L
+    private val MONTHS = arrayOf("Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec")
+
+    private class CachedMinute(val minute: Long, val text: String)
+
+    @Volatile private var cachedMinute = CachedMinute(Long.MIN_VALUE, "")
+
+    /**
+     * Returns the formatted timestamp.
+     */
+    @JvmStatic
+    fun format(timestamp: Long): String {
+        val minute = Math.floorDiv(timestamp, MILLIS_PER_MINUTE)
+        val cached = cachedMinute
+        if (cached.minute == minute) {
+            return cached.text
+        }
+        val text = render(minute)
+        cachedMinute = CachedMinute(minute, text)
+        return text
+    }
+
+    /**
+     * Appends the formatted timestamp to [builder] and returns it.
+     */
+    @JvmStatic
+    fun appendTo(builder: StringBuilder, timestamp: Long): StringBuilder = builder.append(format(timestamp))
+
+    private fun render(minuteSinceEpoch: Long): String {
+        val day = Math.floorDiv(minuteSinceEpoch, MINUTES_PER_DAY)
+        val minuteOfDay = Math.floorMod(minuteSinceEpoch, MINUTES_PER_DAY).toInt()
+        // "kk" is the hour in 1-24, midnight is rendered as 24
+        val hour = (minuteOfDay / 60).let { if (it == 0) 24 else it }
+
+        // days since epoch to month and day of month in the proleptic Gregorian calendar, see
+        // http://howardhinnant.github.io/date_algorithms.html#civil_from_days
+        val shifted = day + 719_468
+        val era = Math.floorDiv(shifted, 146_097L)
+        val dayOfEra = shifted - era * 146_097
+        val yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365
+        val dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100)
+        val monthFromMarch = (5 * dayOfYear + 2) / 153
+        val dayOfMonth = (dayOfYear - (153 * monthFromMarch + 2) / 5 + 1).toInt()
+        val month = (if (monthFromMarch < 10) monthFromMarch + 2 else monthFromMarch - 10).toInt()
+
+        return StringBuilder(12)
+                .append(MONTHS[month])
+                .append('-')
+                .appendTwoDigits(dayOfMonth)
+                .append(' ')
+                .appendTwoDigits(hour)
+                .append(':')
+                .appendTwoDigits(minuteOfDay % 60)
+                .toString()
+    }
+
+    private fun StringBuilder.appendTwoDigits(value: Int): StringBuilder {
+        if (value < 10) {
+            append('0')
+        }
+        return append(value)
+    }
+}
@@ -0,0 +1,21 @@
+package org.wordpress.android.util.helpers.logfile
+
+/**
+ * The formats [LogExporter] can write.
+ */
+enum class LogExportFormat {
+    /**
+     * The layout of `AppLog.toPlainText`, with numbered entries.
+     */
+    PLAIN_TEXT,
+
+    /**
+     * The layout of `AppLog.toHtmlList`, one line per entry.
+     */
+    HTML,
+
+    /**
+     * One JSON object per line, with `timestamp`, `tag`, `level` and `message` fields for entries.
+     */
+    JSON_LINES
+}
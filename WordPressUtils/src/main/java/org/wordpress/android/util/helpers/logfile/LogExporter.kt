@@ -0,0 +1,89 @@
+package org.wordpress.android.util.helpers.logfile
+
+import org.json.JSONObject
+import java.io.File
+import java.io.IOException
+import java.io.Writer
+
+/**
+ * Streams a log to a [Writer] as it's read, so exporting a large log never holds all of it in memory.
+ *
+ * A log is made of header lines, followed by records grouped in sections. Plain text records are numbered from 1
+ * in each section.
+ *
+ * @param writer: The destination, it's neither flushed nor closed by the exporter
+ * @param format: The format to write, see [LogExportFormat]
+ */
+class LogExporter(private val writer: Writer, private val format: LogExportFormat) {
+    private val renderer = LogRecordRenderer()
+    private var lineNumber = 0
+
+    /**
+     * Writes the header lines, e.g. the app and device info.
+     */
+    @Throws(IOException::class)
+    fun writeHeader(lines: List<String>) {
+        when (format) {
+            LogExportFormat.PLAIN_TEXT -> {
+                lines.forEach { writer.append(it).append('\n') }
+                writer.append('\n')
+            }
+            LogExportFormat.HTML -> lines.forEach { writer.append("<strong>").append(it).append("</strong>\n") }
+            LogExportFormat.JSON_LINES -> lines.forEach {
+                writer.append("{\"header\":").append(JSONObject.quote(it)).append("}\n")
+            }
+        }
+    }
+
+    /**
+     * Starts a new section, e.g. for the contents of a persisted log file.
+     */
+    @Throws(IOException::class)
+    fun writeSection(title: String) {
+        lineNumber = 0
+        when (format) {
+            LogExportFormat.PLAIN_TEXT -> writer.append("\n--- ").append(title).append(" ---\n\n")
+            LogExportFormat.HTML -> writer.append("<h3>").append(title).append("</h3>\n")
+            LogExportFormat.JSON_LINES -> writer.append("{\"section\":").append(JSONObject.quote(title)).append("}\n")
+        }
+    }
+
+    @Throws(IOException::class)
+    fun writeRecord(record: LogRecord) {
+        when (format) {
+            LogExportFormat.PLAIN_TEXT -> {
+                if (record.tag != null) {
+                    lineNumber++
+                    if (lineNumber < 10) {
+                        writer.append('0')
+                    }
+                    writer.append(lineNumber.toString()).append(" - ")
+                }
+                renderer.appendPlainText(writer, record)
+            }
+            LogExportFormat.HTML -> {
+                renderer.appendHtml(writer, record)
+                writer.append('\n')
+            }
+            LogExportFormat.JSON_LINES -> {
+                writer.append("{\"timestamp\":").append(record.timestamp.toString())
+                if (record.tag != null) {
+                    writer.append(",\"tag\":\"").append(record.tag.name).append('"')
+                }
+                if (record.level != null) {
+                    writer.append(",\"level\":\"").append(record.level.name).append('"')
+                }
+                writer.append(",\"message\":").append(JSONObject.quote(record.message)).append("}\n")
+            }
+        }
+    }
+
+    /**
+     * Writes every record of a persisted log file in its own section, titled with the file name.
+     */
+    @Throws(IOException::class)
+    fun writeLogFile(file: File) {
+        writeSection(file.name)
+        LogFileDecoder(file).forEachRecord { writeRecord(it) }
+    }
+}
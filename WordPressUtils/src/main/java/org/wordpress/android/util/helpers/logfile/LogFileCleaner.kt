@@ -1,22 +1,57 @@
 package org.wordpress.android.util.helpers.logfile
 
+import java.io.File
+
 /**
- * Prunes the Log File Store by retaining only the last `maxLogFileCount` log files.
+ * Prunes the Log File Store by retaining only the log files of the last `maxLogFileCount` sessions.
+ *
+ * The segments a [LogFileWriter] rotates into, named `<fileId>-<n>`, belong to the session of `<fileId>` and count
+ * once, so rotating doesn't push older sessions out.
  *
  * The file list is created upon instantiation – any files added
  * afterwards won't be modified.
  *
  * @param logFileProvider: An interface where the log files will be retrieved from
- * @param maxLogFileCount: The number of log files to retain
+ * @param maxLogFileCount: The number of sessions whose log files are retained
  */
 class LogFileCleaner(private val logFileProvider: LogFileProviderInterface, private val maxLogFileCount: Int) {
     /**
      * Immediately removes all log files known to exist by this instance except for
-     * the most recent `maxLogFileCount` items.
+     * the ones of the most recent `maxLogFileCount` sessions.
      */
     fun clean() {
-        logFileProvider.getLogFiles()
-                .dropLast(maxLogFileCount)
-                .forEach { it.delete() }
+        val files = logFileProvider.getLogFiles()
+        val sessions = sessionsOf(files)
+        val keptSessions = files.asReversed().map { sessions.getValue(it) }.distinct().take(maxLogFileCount).toSet()
+        files.filter { sessions.getValue(it) !in keptSessions }
+                .forEach {
+                    it.delete()
+                    LogFileIndex.sidecarFor(it).delete()
+                }
+    }
+
+    /**
+     * Maps each file to its session. A `-<n>` suffix is a segment number when the rest of the name is the name of
+     * another file, or is shared by several files, since a time zone offset in a [LogFileWriter] file id looks the
+     * same.
+     */
+    private fun sessionsOf(files: List<File>): Map<File, String> {
+        val names = files.associateWith { nameWithoutExtensions(it) }
+        val allNames = names.values.toSet()
+        val prefixes = names.mapValues { (_, name) ->
+            SEGMENT_SUFFIX.find(name)?.let { name.substring(0, it.range.first) }
+        }
+        val prefixCounts = prefixes.values.filterNotNull().groupingBy { it }.eachCount()
+        return names.mapValues { (file, name) ->
+            val prefix = prefixes.getValue(file)
+            if (prefix != null && (prefix in allNames || prefixCounts.getValue(prefix) > 1)) prefix else name
+        }
+    }
+
+    private fun nameWithoutExtensions(file: File) =
+            file.name.removeSuffix(".${LogFileCompression.GZIP_EXTENSION}").substringBeforeLast('.')
+
+    private companion object {
+        val SEGMENT_SUFFIX = Regex("-\\d+$")
     }
 }
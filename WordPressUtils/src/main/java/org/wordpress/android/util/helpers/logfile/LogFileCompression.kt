@@ -0,0 +1,54 @@
+package org.wordpress.android.util.helpers.logfile
+
+import java.io.BufferedInputStream
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+/**
+ * Helpers to compress rotated log files and read them back.
+ */
+internal object LogFileCompression {
+    const val GZIP_EXTENSION = "gz"
+    const val TEMPORARY_EXTENSION = "tmp"
+    private const val BUFFER_SIZE = 64 * 1024
+
+    /**
+     * Replaces [file] with a gzipped copy named `<name>.gz` which keeps its modification date, so log files stay
+     * in order. Returns the compressed file.
+     */
+    @Throws(IOException::class)
+    fun gzip(file: File): File {
+        val compressed = File(file.parentFile, "${file.name}.$GZIP_EXTENSION")
+        val temporary = File(file.parentFile, "${compressed.name}.$TEMPORARY_EXTENSION")
+        FileInputStream(file).use { input ->
+            GZIPOutputStream(FileOutputStream(temporary), BUFFER_SIZE).use { output ->
+                input.copyTo(output, BUFFER_SIZE)
+            }
+        }
+        temporary.setLastModified(file.lastModified())
+        if (!temporary.renameTo(compressed)) {
+            temporary.delete()
+            throw IOException("Unable to rename ${temporary.name}")
+        }
+        file.delete()
+        return compressed
+    }
+
+    /**
+     * Opens a buffered stream of the uncompressed contents of a log file, gzipped or not.
+     */
+    @Throws(IOException::class)
+    fun openInputStream(file: File): InputStream {
+        val input = FileInputStream(file)
+        return if (file.extension == GZIP_EXTENSION) {
+            BufferedInputStream(GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE)
+        } else {
+            BufferedInputStream(input, BUFFER_SIZE)
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.wordpress.android.util.helpers.logfile
+
+import java.io.DataInputStream
+import java.io.File
+import java.io.IOException
+import java.io.Writer
+
+/**
+ * Streams the records of a log file, written in either [LogFileFormat], without loading the whole file in memory.
+ *
+ * Text log files have no record structure, each of their lines is returned as an untagged [LogRecord].
+ * Files gzipped by a [LogRotationPolicy] are decompressed on the fly.
+ *
+ * @param file: The log file to decode
+ */
+class LogFileDecoder(private val file: File) {
+    /**
+     * Calls [action] for every record in the file, oldest first.
+     */
+    @Throws(IOException::class)
+    fun forEachRecord(action: (LogRecord) -> Unit) {
+        if (!isBinaryLogFile(file)) {
+            LogFileCompression.openInputStream(file).bufferedReader().useLines { lines ->
+                lines.forEach { action(LogRecord(0, null, null, it + "\n")) }
+            }
+            return
+        }
+        DataInputStream(LogFileCompression.openInputStream(file)).use { input ->
+            BinaryLogFormat.readFileHeader(input)
+            val scratch = BinaryLogFormat.ScratchBuffer()
+            var record = BinaryLogFormat.readRecord(input, scratch)
+            while (record != null) {
+                action(record)
+                record = BinaryLogFormat.readRecord(input, scratch)
+            }
+        }
+    }
+
+    /**
+     * Writes the file rendered as plain text to [writer], in the same layout as `AppLog.toPlainText`.
+     */
+    @Throws(IOException::class)
+    fun writePlainText(writer: Writer) {
+        val renderer = LogRecordRenderer()
+        forEachRecord { renderer.appendPlainText(writer, it) }
+    }
+
+    /**
+     * Writes the file rendered as HTML to [writer], one record per line in the same layout as `AppLog.toHtmlList`.
+     */
+    @Throws(IOException::class)
+    fun writeHtml(writer: Writer) {
+        val renderer = LogRecordRenderer()
+        forEachRecord {
+            renderer.appendHtml(writer, it)
+            writer.append('\n')
+        }
+    }
+
+    companion object {
+        /**
+         * Returns true if the file starts with a [BinaryLogFormat] header.
+         */
+        @JvmStatic
+        fun isBinaryLogFile(file: File): Boolean {
+            if (file.length() == 0L) {
+                return false
+            }
+            return DataInputStream(LogFileCompression.openInputStream(file)).use { BinaryLogFormat.readFileHeader(it) }
+        }
+    }
+}
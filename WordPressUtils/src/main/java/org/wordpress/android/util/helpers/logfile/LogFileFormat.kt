@@ -0,0 +1,25 @@
+package org.wordpress.android.util.helpers.logfile
+
+/**
+ * The on-disk formats supported by [LogFileWriter].
+ *
+ * @param extension: The file extension used for log files written in this format
+ */
+enum class LogFileFormat(val extension: String) {
+    /**
+     * Pre-rendered text lines, readable with any text viewer.
+     */
+    TEXT("log"),
+
+    /**
+     * Compact binary records, see [BinaryLogFormat]. Use [LogFileDecoder] to render them as text or HTML.
+     */
+    BINARY("wplog"),
+
+    /**
+     * [BINARY] records written straight into a pre-sized, memory-mapped segment on the calling thread. Each write
+     * is a memory store the kernel persists on its own, so entries logged right before a crash survive it.
+     * Segments are sized by [LogRotationPolicy.maxFileSizeBytes] and roll over when full.
+     */
+    MAPPED("wplog")
+}
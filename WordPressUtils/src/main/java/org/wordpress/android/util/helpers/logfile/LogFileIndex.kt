@@ -0,0 +1,269 @@
+package org.wordpress.android.util.helpers.logfile
+
+import org.wordpress.android.util.AppLog
+import java.io.BufferedInputStream
+import java.io.BufferedOutputStream
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileOutputStream
+import java.io.FilterInputStream
+import java.io.IOException
+import java.io.InputStream
+
+/**
+ * A sidecar index of a [LogFileFormat.BINARY] or [LogFileFormat.MAPPED] log file, stored next to it as
+ * `<name>.idx`, which lets [LogFileSearch] skip the parts of the file which can't match a [LogQuery].
+ *
+ * The records are grouped in blocks covering at most one [BUCKET_MS] time bucket and [MAX_BLOCK_RECORDS] records.
+ * Each block stores the offset of its first record and the time range, tags and levels of its records. Offsets
+ * are positions in the uncompressed contents, so gzipped files can be indexed too, although reaching a block of
+ * those still means decompressing the blocks before it.
+ *
+ * The index is built the first time the file is searched and extended with the records appended since.
+ */
+internal class LogFileIndex private constructor(
+    val blocks: List<Block>,
+    /**
+     * The offset following the last complete record
+     */
+    val dataEnd: Long,
+    private val fileLength: Long
+) {
+    class Block(
+        val startOffset: Long,
+        val minTimestamp: Long,
+        val maxTimestamp: Long,
+        val tagMask: Long,
+        val levelMask: Int
+    )
+
+    /**
+     * Returns the offset following the last record of the block at [index]
+     */
+    fun endOffset(index: Int): Long = if (index + 1 < blocks.size) blocks[index + 1].startOffset else dataEnd
+
+    companion object {
+        const val INDEX_EXTENSION = "idx"
+        private val INDEX_MAGIC = "WPLI".toByteArray(Charsets.US_ASCII)
+        private const val INDEX_VERSION: Byte = 1
+        private const val BUCKET_MS = 60_000L
+        private const val MAX_BLOCK_RECORDS = 256
+        private const val UNTAGGED_TAG_BIT = Long.MIN_VALUE
+        private const val UNTAGGED_LEVEL_BIT = Int.MIN_VALUE
+        private const val BUFFER_SIZE = 16 * 1024
+
+        init {
+            require(AppLog.T.values().size < Long.SIZE_BITS) { "Too many tags to index" }
+        }
+
+        fun tagBit(tag: AppLog.T?): Long = if (tag == null) UNTAGGED_TAG_BIT else 1L shl tag.ordinal
+
+        fun levelBit(level: AppLog.LogLevel?): Int = if (level == null) UNTAGGED_LEVEL_BIT else 1 shl level.ordinal
+
+        fun sidecarFor(logFile: File) = File(logFile.parentFile, "${logFile.name}.$INDEX_EXTENSION")
+
+        /**
+         * Returns the index of a binary log file, building or extending its sidecar as needed.
+         */
+        @Throws(IOException::class)
+        fun forFile(logFile: File): LogFileIndex {
+            val sidecar = sidecarFor(logFile)
+            val existing = read(sidecar)
+            val compressed = logFile.extension == LogFileCompression.GZIP_EXTENSION
+            val index = when {
+                existing == null -> scan(logFile, emptyList(), BinaryLogFormat.FILE_HEADER_SIZE.toLong())
+                // a gzipped file never changes once it's been renamed into place
+                compressed && existing.fileLength == logFile.length() -> return existing
+                compressed || logFile.length() < existing.dataEnd -> {
+                    scan(logFile, emptyList(), BinaryLogFormat.FILE_HEADER_SIZE.toLong())
+                }
+                else -> scan(logFile, existing.blocks, existing.dataEnd)
+            }
+            if (existing == null || index.dataEnd != existing.dataEnd || index.fileLength != existing.fileLength) {
+                write(sidecar, index)
+            }
+            return index
+        }
+
+        /**
+         * Indexes the records from [startOffset] to the end of the data, after the [blocks] indexed before
+         */
+        @Throws(IOException::class)
+        private fun scan(logFile: File, blocks: List<Block>, startOffset: Long): LogFileIndex {
+            val fileLength = logFile.length()
+            val indexed = ArrayList(blocks)
+            var dataEnd = startOffset
+            openAt(logFile, startOffset).use { stream ->
+                val counting = CountingInputStream(stream, startOffset)
+                val input = DataInputStream(counting)
+                val scratch = BinaryLogFormat.ScratchBuffer()
+                val builder = BlockBuilder()
+                var record = BinaryLogFormat.readRecord(input, scratch)
+                while (record != null) {
+                    if (!builder.accepts(record)) {
+                        indexed.add(builder.build())
+                        builder.reset()
+                    }
+                    builder.add(dataEnd, record)
+                    dataEnd = counting.position
+                    record = BinaryLogFormat.readRecord(input, scratch)
+                }
+                if (!builder.isEmpty()) {
+                    indexed.add(builder.build())
+                }
+            }
+            return LogFileIndex(indexed, dataEnd, fileLength)
+        }
+
+        /**
+         * Opens the uncompressed contents of the file, positioned at [offset]
+         */
+        @Throws(IOException::class)
+        fun openAt(logFile: File, offset: Long): InputStream {
+            if (logFile.extension == LogFileCompression.GZIP_EXTENSION) {
+                val input = LogFileCompression.openInputStream(logFile)
+                try {
+                    skipFully(input, offset)
+                } catch (e: IOException) {
+                    input.close()
+                    throw e
+                }
+                return input
+            }
+            val input = FileInputStream(logFile)
+            input.channel.position(offset)
+            return BufferedInputStream(input, BUFFER_SIZE)
+        }
+
+        @Throws(IOException::class)
+        fun skipFully(input: InputStream, count: Long) {
+            var remaining = count
+            while (remaining > 0) {
+                val skipped = input.skip(remaining)
+                if (skipped <= 0) {
+                    if (input.read() == -1) {
+                        throw EOFException()
+                    }
+                    remaining--
+                } else {
+                    remaining -= skipped
+                }
+            }
+        }
+
+        private fun read(sidecar: File): LogFileIndex? {
+            if (!sidecar.exists()) {
+                return null
+            }
+            return try {
+                DataInputStream(BufferedInputStream(FileInputStream(sidecar), BUFFER_SIZE)).use { input ->
+                    val magic = ByteArray(INDEX_MAGIC.size)
+                    input.readFully(magic)
+                    if (!magic.contentEquals(INDEX_MAGIC) || input.readByte() != INDEX_VERSION) {
+                        return null
+                    }
+                    val fileLength = input.readLong()
+                    val dataEnd = input.readLong()
+                    val blocks = List(input.readInt()) {
+                        Block(input.readLong(), input.readLong(), input.readLong(), input.readLong(), input.readInt())
+                    }
+                    LogFileIndex(blocks, dataEnd, fileLength)
+                }
+            } catch (e: IOException) {
+                // a corrupt index is rebuilt
+                null
+            }
+        }
+
+        @Throws(IOException::class)
+        private fun write(sidecar: File, index: LogFileIndex) {
+            // written under a temporary name, which getLogFiles() ignores, so readers never see a partial index
+            val temporary = File(sidecar.parentFile, "${sidecar.name}.${LogFileCompression.TEMPORARY_EXTENSION}")
+            DataOutputStream(BufferedOutputStream(FileOutputStream(temporary), BUFFER_SIZE)).use { output ->
+                output.write(INDEX_MAGIC)
+                output.writeByte(INDEX_VERSION.toInt())
+                output.writeLong(index.fileLength)
+                output.writeLong(index.dataEnd)
+                output.writeInt(index.blocks.size)
+                index.blocks.forEach {
+                    output.writeLong(it.startOffset)
+                    output.writeLong(it.minTimestamp)
+                    output.writeLong(it.maxTimestamp)
+                    output.writeLong(it.tagMask)
+                    output.writeInt(it.levelMask)
+                }
+            }
+            if (!temporary.renameTo(sidecar)) {
+                temporary.delete()
+                throw IOException("Unable to rename ${temporary.name}")
+            }
+        }
+    }
+
+    private class BlockBuilder {
+        private var startOffset = 0L
+        private var bucket = 0L
+        private var records = 0
+        private var minTimestamp = 0L
+        private var maxTimestamp = 0L
+        private var tagMask = 0L
+        private var levelMask = 0
+
+        fun isEmpty() = records == 0
+
+        fun accepts(record: LogRecord) =
+                records == 0 || (records < MAX_BLOCK_RECORDS && Math.floorDiv(record.timestamp, BUCKET_MS) == bucket)
+
+        fun add(offset: Long, record: LogRecord) {
+            if (records == 0) {
+                startOffset = offset
+                bucket = Math.floorDiv(record.timestamp, BUCKET_MS)
+                minTimestamp = record.timestamp
+                maxTimestamp = record.timestamp
+            }
+            records++
+            minTimestamp = minOf(minTimestamp, record.timestamp)
+            maxTimestamp = maxOf(maxTimestamp, record.timestamp)
+            tagMask = tagMask or tagBit(record.tag)
+            levelMask = levelMask or levelBit(record.level)
+        }
+
+        fun build() = Block(startOffset, minTimestamp, maxTimestamp, tagMask, levelMask)
+
+        fun reset() {
+            records = 0
+            tagMask = 0L
+            levelMask = 0
+        }
+    }
+
+    /**
+     * Tracks the offset of the next byte read from the stream
+     */
+    class CountingInputStream(input: InputStream, var position: Long) : FilterInputStream(input) {
+        override fun read(): Int {
+            val byte = super.read()
+            if (byte >= 0) {
+                position++
+            }
+            return byte
+        }
+
+        override fun read(b: ByteArray, off: Int, len: Int): Int {
+            val count = super.read(b, off, len)
+            if (count > 0) {
+                position += count
+            }
+            return count
+        }
+
+        override fun skip(n: Long): Long {
+            val skipped = super.skip(n)
+            position += skipped
+            return skipped
+        }
+    }
+}
@@ -25,14 +25,43 @@ class LogFileProvider(private val logFileDirectoryPath: String) : LogFileProvide
     }
 
     /**
-     * Provides a list of stored log files, ordered oldest to newest.
+     * Provides a list of stored log files, ordered oldest to newest. Files still being compressed and the sidecar
+     * indexes of [LogFileSearch] are left out.
      */
     override fun getLogFiles(): List<File> {
         return getLogFileDirectory()
                 .listFiles()
+                ?.filter {
+                    it.extension != LogFileCompression.TEMPORARY_EXTENSION &&
+                            it.extension != LogFileIndex.INDEX_EXTENSION
+                }
                 ?.sortedBy { it.lastModified() } ?: listOf()
     }
 
+    /**
+     * Deletes the oldest log files, except `activeFile`, until the total size of the stored log files is at most
+     * `maxTotalSizeBytes`.
+     */
+    override fun enforceDiskBudget(maxTotalSizeBytes: Long, activeFile: File?) {
+        if (maxTotalSizeBytes <= 0) {
+            return
+        }
+        val files = getLogFiles()
+        var totalSize = files.sumOf { it.length() }
+        for (file in files) {
+            if (totalSize <= maxTotalSizeBytes) {
+                break
+            }
+            if (file != activeFile) {
+                val size = file.length()
+                if (file.delete()) {
+                    LogFileIndex.sidecarFor(file).delete()
+                    totalSize -= size
+                }
+            }
+        }
+    }
+
     companion object {
         @JvmStatic
         fun fromContext(context: Context): LogFileProvider {
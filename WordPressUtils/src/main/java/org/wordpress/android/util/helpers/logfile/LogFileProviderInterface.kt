@@ -9,4 +9,11 @@ interface LogFileProviderInterface {
     fun getLogFiles(): List<File>
 
     fun getLogFileDirectory(): File
+
+    /**
+     * Deletes the oldest log files until all of them fit in `maxTotalSizeBytes`. Does nothing by default.
+     *
+     * @param activeFile: A file which is still being written and must be kept
+     */
+    fun enforceDiskBudget(maxTotalSizeBytes: Long, activeFile: File?) = Unit
 }
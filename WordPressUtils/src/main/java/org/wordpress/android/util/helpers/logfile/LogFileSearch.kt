@@ -0,0 +1,87 @@
+package org.wordpress.android.util.helpers.logfile
+
+import java.io.DataInputStream
+import java.io.File
+import java.io.IOException
+
+/**
+ * Searches the log files of a [LogFileProviderInterface] for the records matching a [LogQuery], e.g. to filter
+ * the log by tag, level and time range in a log viewer.
+ *
+ * Binary log files are searched through their sidecar [LogFileIndex], so only the parts of the file which may
+ * contain matching records are read. Text log files have no index and are scanned.
+ *
+ * @param logFileProvider: An interface where the log files will be retrieved from
+ */
+class LogFileSearch(private val logFileProvider: LogFileProviderInterface) {
+    /**
+     * Calls [action] for every matching record, oldest file first.
+     */
+    @Throws(IOException::class)
+    fun forEachMatch(query: LogQuery, action: (LogRecord) -> Unit) {
+        deleteOrphanedIndexes()
+        logFileProvider.getLogFiles().forEach { forEachMatch(it, query, action) }
+    }
+
+    /**
+     * Calls [action] for every matching record of a single log file.
+     */
+    @Throws(IOException::class)
+    fun forEachMatch(file: File, query: LogQuery, action: (LogRecord) -> Unit) {
+        if (!LogFileDecoder.isBinaryLogFile(file)) {
+            LogFileDecoder(file).forEachRecord {
+                if (query.matches(it)) {
+                    action(it)
+                }
+            }
+            return
+        }
+        val index = LogFileIndex.forFile(file)
+        val compressed = file.extension == LogFileCompression.GZIP_EXTENSION
+        val scratch = BinaryLogFormat.ScratchBuffer()
+        var stream: LogFileIndex.CountingInputStream? = null
+        try {
+            index.blocks.forEachIndexed { i, block ->
+                if (!query.matches(block)) {
+                    return@forEachIndexed
+                }
+                // reopening a plain file at the block is cheaper than reading up to it, a gzipped one must be read
+                var current = stream
+                if (current == null || (!compressed && block.startOffset - current.position > MAX_SKIP_BYTES)) {
+                    current?.close()
+                    current = LogFileIndex.CountingInputStream(
+                            LogFileIndex.openAt(file, block.startOffset),
+                            block.startOffset
+                    )
+                    stream = current
+                } else {
+                    LogFileIndex.skipFully(current, block.startOffset - current.position)
+                }
+                val input = DataInputStream(current)
+                val end = index.endOffset(i)
+                while (current.position < end) {
+                    val record = BinaryLogFormat.readRecord(input, scratch) ?: break
+                    if (query.matches(record)) {
+                        action(record)
+                    }
+                }
+            }
+        } finally {
+            stream?.close()
+        }
+    }
+
+    /**
+     * Deletes the indexes of log files which were deleted or replaced by their gzipped copy
+     */
+    private fun deleteOrphanedIndexes() {
+        logFileProvider.getLogFileDirectory()
+                .listFiles { file -> file.extension == LogFileIndex.INDEX_EXTENSION }
+                ?.filter { !File(it.parentFile, it.nameWithoutExtension).exists() }
+                ?.forEach { it.delete() }
+    }
+
+    private companion object {
+        const val MAX_SKIP_BYTES = 64 * 1024
+    }
+}
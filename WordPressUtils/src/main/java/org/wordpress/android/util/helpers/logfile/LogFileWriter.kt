@@ -2,56 +2,427 @@ package org.wordpress.android.util.helpers.logfile
 
 import android.util.Log
 import org.jetbrains.annotations.TestOnly
+import org.wordpress.android.util.AppLog
 import java.io.File
-import java.io.FileWriter
 import java.util.Date
 import org.wordpress.android.util.DateTimeUtils
 import java.io.IOException
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
 import java.util.concurrent.ExecutorService
 import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
+import java.util.concurrent.locks.ReentrantLock
+import kotlin.concurrent.thread
+import kotlin.concurrent.withLock
 
 /**
  * A class that manages writing to a log file.
  *
  * This class creates and writes to a log file, and will typically persist for the entire lifecycle
  * of its host application.
+ *
+ * Records are queued and written by a background thread in batches, which are flushed to disk once
+ * `maxBatchSize` records are pending or the oldest pending record has waited `maxFlushDelayMs`, whichever
+ * comes first.
+ *
+ * When the [LogRotationPolicy] asks for it, the current file is closed and writing continues in a new file
+ * named `<fileId>-<n>`.
+ *
+ * In the [LogFileFormat.MAPPED] format there is no queue, records are copied into the mapped segment on the
+ * calling thread and [flushNow] forces the segment to disk. The next segment is created and mapped in the background
+ * ahead of time, so rolling over is a reference swap on the calling thread, and the previous segment is forced,
+ * truncated and closed in the background too.
+ *
+ * @param format: The on-disk format of the log file, see [LogFileFormat]
+ * @param maxBatchSize: The number of pending records which triggers a flush
+ * @param maxFlushDelayMs: The maximum time a record waits before it's flushed
+ * @param rotationPolicy: When to continue in a new file, see [LogRotationPolicy]
  */
 class LogFileWriter @JvmOverloads constructor(
-    logFileProvider: LogFileProviderInterface,
-    fileId: String = DateTimeUtils.iso8601FromDate(Date())
+    private val logFileProvider: LogFileProviderInterface,
+    private val fileId: String = DateTimeUtils.iso8601FromDate(Date()),
+    private val format: LogFileFormat = LogFileFormat.TEXT,
+    private val maxBatchSize: Int = DEFAULT_MAX_BATCH_SIZE,
+    maxFlushDelayMs: Long = DEFAULT_MAX_FLUSH_DELAY_MS,
+    private val rotationPolicy: LogRotationPolicy = LogRotationPolicy.NONE
 ) {
-    private val file = File(logFileProvider.getLogFileDirectory(), "$fileId.log")
-    private val fileWriter: FileWriter = FileWriter(file)
-    private var writingFailed = false
+    @Volatile private var file = File(logFileProvider.getLogFileDirectory(), "$fileId.${format.extension}")
+    private var sink: LogRecordSink = LogRecordSink.create(file, format, rotationPolicy)
+    private val writesOnCallingThread = format == LogFileFormat.MAPPED
+    private var segment = 0
+    private var segmentStartedAt = System.currentTimeMillis()
+
+    /**
+     * Compresses rotated files off the writing thread, and in the [LogFileFormat.MAPPED] format closes them and maps
+     * the next segment, created on first use
+     */
+    private val rotationQueue: ExecutorService by lazy {
+        Executors.newSingleThreadExecutor { runnable ->
+            Thread(runnable, "LogFileWriter-rotation").apply { isDaemon = true }
+        }
+    }
+
+    /**
+     * The next [LogFileFormat.MAPPED] segment, mapped by [rotationQueue] before the rotation which needs it
+     */
+    private var nextSegment: Future<MappedSegment>? = null
+
+    /**
+     * Forces, truncates and closes the previous [LogFileFormat.MAPPED] segment, [flushNow] waits for it
+     */
+    private var closingSegment: Future<*>? = null
+
+    private val maxFlushDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxFlushDelayMs)
+    @Volatile private var writingFailed = false
 
     /**
-     * A serial executor used to write to the file in a background thread
+     * Records waiting to be written, swapped with [draining] by each flush so neither list is reallocated
      */
-    private val queue: ExecutorService = Executors.newSingleThreadExecutor()
+    private val pendingLock = ReentrantLock()
+    private val recordsAvailable = pendingLock.newCondition()
+    private var pending = ArrayList<LogRecord>(maxBatchSize)
+    private var draining = ArrayList<LogRecord>(maxBatchSize)
+    private var oldestPendingNanos = 0L
 
     /**
-     * A reference to the underlying {@link Java.IO.File} file.
+     * Held while a batch is appended and flushed, so [flushNow] can't interleave with the background thread
+     */
+    private val sinkLock = ReentrantLock()
+
+    private var recordsWritten = 0L
+    private var flushes = 0L
+    private var largestBatch = 0
+    private var flushTimeNanos = 0L
+
+    init {
+        if (writesOnCallingThread) {
+            nextSegment = mapSegment(segment + 1)
+        } else {
+            thread(isDaemon = true, name = "LogFileWriter") { drainLoop() }
+        }
+    }
+
+    /**
+     * A reference to the underlying {@link Java.IO.File} file currently written to.
      * Should only be used for testing.
      */
     @TestOnly
     fun getFile(): File = file
 
     /**
-     * Writes the provided string to the log file synchronously
+     * Queues the provided string to be written to the log file
      */
     fun write(data: String) {
-        if (!writingFailed) {
-            queue.execute {
+        write(LogRecord(System.currentTimeMillis(), null, null, data))
+    }
+
+    /**
+     * Queues a log entry to be written to the log file. In the text format it's rendered the same way as `AppLog`
+     * renders its entries, on the background thread.
+     */
+    fun write(timestamp: Long, tag: AppLog.T, level: AppLog.LogLevel, message: String) {
+        write(LogRecord(timestamp, tag, level, message))
+    }
+
+    private fun write(record: LogRecord) {
+        if (writingFailed) {
+            return
+        }
+        if (writesOnCallingThread) {
+            sinkLock.withLock {
+                appendNow(record)
+            }
+            return
+        }
+        pendingLock.withLock {
+            pending.add(record)
+            if (pending.size == 1) {
+                oldestPendingNanos = System.nanoTime()
+                recordsAvailable.signal()
+            } else if (pending.size == maxBatchSize) {
+                recordsAvailable.signal()
+            }
+        }
+    }
+
+    /**
+     * Synchronously writes and flushes every pending record, e.g. before the process is killed.
+     * Blocks while the background thread is flushing a batch.
+     */
+    fun flushNow() {
+        sinkLock.withLock {
+            if (writesOnCallingThread) {
+                forceMappedSegment()
+                awaitClosingSegment(NO_DEADLINE)
+            } else {
+                drainPending(NO_DEADLINE)
+            }
+        }
+    }
+
+    /**
+     * Like [flushNow], but gives up once [timeoutMs] elapsed, e.g. when the process is crashing. Records which
+     * couldn't be written in time stay pending.
+     *
+     * @return true if every pending record was written and flushed
+     */
+    fun flushNow(timeoutMs: Long): Boolean {
+        val deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs)
+        if (!sinkLock.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return false
+        }
+        try {
+            if (writesOnCallingThread) {
+                forceMappedSegment()
+                return awaitClosingSegment(deadlineNanos) && !writingFailed
+            }
+            return drainPending(deadlineNanos) && !writingFailed
+        } finally {
+            sinkLock.unlock()
+        }
+    }
+
+    /**
+     * Returns the throughput of this writer since it was created.
+     */
+    fun getStats(): LogFileWriterStats {
+        val pendingRecords = pendingLock.withLock { pending.size }
+        return sinkLock.withLock {
+            LogFileWriterStats(recordsWritten, flushes, largestBatch, flushTimeNanos, pendingRecords)
+        }
+    }
+
+    private fun drainLoop() {
+        while (!writingFailed) {
+            awaitBatch()
+            sinkLock.withLock {
+                drainPending(NO_DEADLINE)
+            }
+        }
+    }
+
+    /**
+     * Blocks until a full batch is pending or the oldest pending record reached its flush deadline
+     */
+    private fun awaitBatch() {
+        pendingLock.withLock {
+            while (pending.isEmpty()) {
+                recordsAvailable.await()
+            }
+            var remainingNanos = oldestPendingNanos + maxFlushDelayNanos - System.nanoTime()
+            while (pending.size in 1 until maxBatchSize && remainingNanos > 0) {
+                remainingNanos = recordsAvailable.awaitNanos(remainingNanos)
+            }
+        }
+    }
+
+    /**
+     * Appends and flushes every pending record, must be called while holding [sinkLock]
+     *
+     * @param deadlineNanos: The [System.nanoTime] after which the remaining records are put back in the queue, or
+     * [NO_DEADLINE]
+     * @return false if some records were put back in the queue
+     */
+    private fun drainPending(deadlineNanos: Long): Boolean {
+        val batch = pendingLock.withLock {
+            val records = pending
+            pending = draining
+            draining = records
+            records
+        }
+        if (batch.isEmpty() || writingFailed) {
+            batch.clear()
+            return true
+        }
+        val start = System.nanoTime()
+        var appended = 0
+        try {
+            while (appended < batch.size && (deadlineNanos == NO_DEADLINE || System.nanoTime() < deadlineNanos)) {
+                sink.append(batch[appended++])
+            }
+            sink.flush()
+            recordsWritten += appended
+            flushes++
+            largestBatch = maxOf(largestBatch, appended)
+            flushTimeNanos += System.nanoTime() - start
+            if (rotationPolicy.isTooLarge(file.length()) || isSegmentTooOld()) {
+                rotate()
+            }
+        } catch (ioe: IOException) {
+            writingFailed = true
+            Log.e("LogFileWriter", "Writing log failed", ioe)
+        }
+        val drained = appended == batch.size
+        if (!drained && !writingFailed) {
+            val remaining = batch.subList(appended, batch.size)
+            pendingLock.withLock {
+                if (pending.isEmpty()) {
+                    oldestPendingNanos = start
+                    recordsAvailable.signal()
+                }
+                pending.addAll(0, remaining)
+            }
+        }
+        batch.clear()
+        return drained
+    }
+
+    /**
+     * Appends a record to the mapped segment, rolling over to a new one when it's full or too old, must be called
+     * while holding [sinkLock]
+     */
+    private fun appendNow(record: LogRecord) {
+        try {
+            if (isSegmentTooOld()) {
+                rotate()
+            }
+            if (!sink.append(record)) {
+                rotate()
+                sink.append(record)
+            }
+            recordsWritten++
+        } catch (ioe: IOException) {
+            writingFailed = true
+            Log.e("LogFileWriter", "Writing log failed", ioe)
+        }
+    }
+
+    /**
+     * Forces the mapped segment to disk, must be called while holding [sinkLock]
+     */
+    private fun forceMappedSegment() {
+        if (writingFailed) {
+            return
+        }
+        val start = System.nanoTime()
+        try {
+            sink.flush()
+            flushes++
+            flushTimeNanos += System.nanoTime() - start
+        } catch (ioe: IOException) {
+            writingFailed = true
+            Log.e("LogFileWriter", "Flushing log failed", ioe)
+        }
+    }
+
+    /**
+     * Waits until the previous mapped segment is forced to disk and closed, must be called while holding [sinkLock]
+     *
+     * @return false if it wasn't closed before [deadlineNanos]
+     */
+    private fun awaitClosingSegment(deadlineNanos: Long): Boolean {
+        val closing = closingSegment ?: return true
+        try {
+            if (deadlineNanos == NO_DEADLINE) {
+                closing.get()
+            } else {
+                closing.get(maxOf(0L, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS)
+            }
+        } catch (e: TimeoutException) {
+            return false
+        } catch (e: ExecutionException) {
+            // already logged by the task
+        }
+        return true
+    }
+
+    private fun isSegmentTooOld() = rotationPolicy.isTooOld(System.currentTimeMillis() - segmentStartedAt)
+
+    private fun segmentFile(segment: Int) =
+            File(logFileProvider.getLogFileDirectory(), "$fileId-$segment.${format.extension}")
+
+    /**
+     * Creates and maps the file of a [LogFileFormat.MAPPED] segment on [rotationQueue]
+     */
+    private fun mapSegment(segment: Int): Future<MappedSegment> = rotationQueue.submit(Callable {
+        val segmentFile = segmentFile(segment)
+        MappedSegment(segmentFile, LogRecordSink.create(segmentFile, format, rotationPolicy))
+    })
+
+    /**
+     * Closes the current file and continues in the next segment, must be called while holding [sinkLock]
+     */
+    @Throws(IOException::class)
+    private fun rotate() {
+        if (writesOnCallingThread) {
+            rotateMapped()
+            return
+        }
+        sink.close()
+        val rotatedFile = file
+        segment++
+        file = segmentFile(segment)
+        sink = LogRecordSink.create(file, format, rotationPolicy)
+        segmentStartedAt = System.currentTimeMillis()
+
+        val activeFile = file
+        if (rotationPolicy.gzipRotatedFiles) {
+            rotationQueue.execute {
+                try {
+                    LogFileCompression.gzip(rotatedFile)
+                } catch (ioe: IOException) {
+                    Log.e("LogFileWriter", "Compressing rotated log failed", ioe)
+                }
+                logFileProvider.enforceDiskBudget(rotationPolicy.maxTotalSizeBytes, activeFile)
+            }
+        } else {
+            logFileProvider.enforceDiskBudget(rotationPolicy.maxTotalSizeBytes, activeFile)
+        }
+    }
+
+    /**
+     * Swaps in the segment mapped ahead of time, and leaves closing the current one and mapping the one after to
+     * [rotationQueue]. Only waits for the mapping when segments fill up faster than a file can be mapped.
+     */
+    @Throws(IOException::class)
+    private fun rotateMapped() {
+        val next = try {
+            (nextSegment ?: mapSegment(segment + 1)).get()
+        } catch (e: ExecutionException) {
+            nextSegment = null
+            throw e.cause as? IOException ?: IOException(e.cause)
+        }
+        val rotatedSink = sink
+        val rotatedFile = file
+        val rotatedAt = System.currentTimeMillis()
+        segment++
+        file = next.file
+        sink = next.sink
+        segmentStartedAt = rotatedAt
+
+        val activeFile = file
+        closingSegment = rotationQueue.submit {
+            try {
+                rotatedSink.close()
+            } catch (ioe: IOException) {
+                Log.e("LogFileWriter", "Closing rotated log failed", ioe)
+            }
+            // the next segment was created first, keep the files in the order they were written
+            rotatedFile.setLastModified(rotatedAt)
+            activeFile.setLastModified(maxOf(System.currentTimeMillis(), rotatedAt + 1))
+        }
+        rotationQueue.execute {
+            if (rotationPolicy.gzipRotatedFiles) {
                 try {
-                    if (!writingFailed) {
-                        fileWriter.write(data)
-                        fileWriter.flush()
-                    }
+                    LogFileCompression.gzip(rotatedFile)
                 } catch (ioe: IOException) {
-                    writingFailed = true
-                    Log.e("LogFileWriter", "Writing log failed: ${ioe.stackTrace}")
+                    Log.e("LogFileWriter", "Compressing rotated log failed", ioe)
                 }
             }
+            logFileProvider.enforceDiskBudget(rotationPolicy.maxTotalSizeBytes, activeFile)
         }
+        // mapped after the disk budget is enforced, which would otherwise count it
+        nextSegment = mapSegment(segment + 1)
+    }
+
+    private class MappedSegment(val file: File, val sink: LogRecordSink)
+
+    companion object {
+        const val DEFAULT_MAX_BATCH_SIZE = 256
+        const val DEFAULT_MAX_FLUSH_DELAY_MS = 200L
+        private const val NO_DEADLINE = Long.MAX_VALUE
     }
 }
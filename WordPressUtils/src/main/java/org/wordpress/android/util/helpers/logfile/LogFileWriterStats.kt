@@ -0,0 +1,21 @@
+package org.wordpress.android.util.helpers.logfile
+
+/**
+ * A snapshot of the throughput of a [LogFileWriter], used to tune its batch size and flush delay.
+ *
+ * @param recordsWritten: The number of records appended to the log file
+ * @param flushes: The number of batches flushed to disk
+ * @param largestBatch: The largest number of records flushed at once
+ * @param flushTimeNanos: The total time spent appending and flushing batches
+ * @param pendingRecords: The number of records waiting to be written
+ */
+data class LogFileWriterStats(
+    val recordsWritten: Long,
+    val flushes: Long,
+    val largestBatch: Int,
+    val flushTimeNanos: Long,
+    val pendingRecords: Int
+) {
+    val averageBatchSize: Double
+        get() = if (flushes == 0L) 0.0 else recordsWritten.toDouble() / flushes
+}
@@ -0,0 +1,49 @@
+package org.wordpress.android.util.helpers.logfile
+
+import org.wordpress.android.util.AppLog
+
+/**
+ * The records a [LogFileSearch] should return. Every criterion is optional.
+ *
+ * Untagged records, such as the headers and the lines of text log files, only match queries without tags, level or
+ * time range.
+ *
+ * @param tags: Only return records of these tags, or of every tag if null
+ * @param minLevel: Only return records of this level or above, or of every level if null
+ * @param fromTimestamp: Only return records logged at or after this time, in milliseconds
+ * @param toTimestamp: Only return records logged at or before this time, in milliseconds
+ */
+data class LogQuery @JvmOverloads constructor(
+    val tags: Set<AppLog.T>? = null,
+    val minLevel: AppLog.LogLevel? = null,
+    val fromTimestamp: Long = Long.MIN_VALUE,
+    val toTimestamp: Long = Long.MAX_VALUE
+) {
+    private val hasTimeRange = fromTimestamp != Long.MIN_VALUE || toTimestamp != Long.MAX_VALUE
+
+    internal val tagMask: Long = tags?.fold(0L) { mask, tag -> mask or LogFileIndex.tagBit(tag) } ?: ALL_BITS
+
+    internal val levelMask: Int = minLevel?.let { min ->
+        AppLog.LogLevel.values().filter { it >= min }.fold(0) { mask, level -> mask or LogFileIndex.levelBit(level) }
+    } ?: ALL_BITS.toInt()
+
+    fun matches(record: LogRecord): Boolean {
+        if (record.tag == null || record.level == null) {
+            return tags == null && minLevel == null && !hasTimeRange
+        }
+        return (tags == null || record.tag in tags) &&
+                (minLevel == null || record.level >= minLevel) &&
+                record.timestamp in fromTimestamp..toTimestamp
+    }
+
+    internal fun matches(block: LogFileIndex.Block): Boolean {
+        return (block.tagMask and tagMask) != 0L &&
+                (block.levelMask and levelMask) != 0 &&
+                block.maxTimestamp >= fromTimestamp &&
+                block.minTimestamp <= toTimestamp
+    }
+
+    private companion object {
+        const val ALL_BITS = -1L
+    }
+}
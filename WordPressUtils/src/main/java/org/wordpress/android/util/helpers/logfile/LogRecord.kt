@@ -0,0 +1,15 @@
+package org.wordpress.android.util.helpers.logfile
+
+import org.wordpress.android.util.AppLog
+
+/**
+ * A single entry of a log file.
+ *
+ * Untagged records hold raw text, such as the app and device headers, and are rendered as-is.
+ */
+data class LogRecord(
+    val timestamp: Long,
+    val tag: AppLog.T?,
+    val level: AppLog.LogLevel?,
+    val message: String
+)
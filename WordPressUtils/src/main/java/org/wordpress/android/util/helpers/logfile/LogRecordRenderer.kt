@@ -0,0 +1,40 @@
+package org.wordpress.android.util.helpers.logfile
+
+import android.text.TextUtils
+
+/**
+ * Renders [LogRecord]s the same way `AppLog` renders its in-memory entries.
+ */
+internal class LogRecordRenderer {
+
+    fun appendPlainText(out: Appendable, record: LogRecord) {
+        if (record.tag == null) {
+            out.append(record.message)
+            return
+        }
+        out.append('[')
+                .append(LogDateFormatter.format(record.timestamp))
+                .append(' ')
+                .append(record.tag.name)
+                .append("] ")
+                .append(record.message)
+                .append('\n')
+    }
+
+    fun appendHtml(out: Appendable, record: LogRecord) {
+        if (record.tag == null) {
+            out.append(encodeHtml(record.message.trimEnd('\n')))
+            return
+        }
+        out.append('[')
+                .append(LogDateFormatter.format(record.timestamp))
+                .append(' ')
+                .append(record.tag.name)
+                .append(' ')
+                .append(record.level?.name ?: "")
+                .append("] ")
+                .append(encodeHtml(record.message))
+    }
+
+    private fun encodeHtml(text: String) = TextUtils.htmlEncode(text).replace("\n", "<br />")
+}
@@ -0,0 +1,165 @@
+package org.wordpress.android.util.helpers.logfile
+
+import java.io.Closeable
+import java.io.File
+import java.io.FileOutputStream
+import java.io.FileWriter
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * The destination [LogFileWriter] appends its records to. Implementations are only used by one thread at a time,
+ * the writer hands them over to its rotation thread to close them, and don't need to be thread-safe.
+ */
+internal interface LogRecordSink : Closeable {
+    /**
+     * Appends the record, or returns false if the sink has no room left for it and must be rotated.
+     */
+    @Throws(IOException::class)
+    fun append(record: LogRecord): Boolean
+
+    @Throws(IOException::class)
+    fun flush()
+
+    companion object {
+        fun create(file: File, format: LogFileFormat, rotationPolicy: LogRotationPolicy): LogRecordSink =
+                when (format) {
+                    LogFileFormat.TEXT -> TextLogRecordSink(file)
+                    LogFileFormat.BINARY -> BinaryLogRecordSink(file)
+                    LogFileFormat.MAPPED -> MappedLogRecordSink(file, rotationPolicy.maxFileSizeBytes.takeIf {
+                        it != LogRotationPolicy.UNLIMITED
+                    } ?: LogRotationPolicy.DEFAULT_SEGMENT_SIZE_BYTES)
+                }
+    }
+}
+
+/**
+ * Writes records as pre-rendered text lines.
+ */
+internal class TextLogRecordSink(file: File) : LogRecordSink {
+    private val fileWriter = FileWriter(file)
+    private val renderer = LogRecordRenderer()
+
+    override fun append(record: LogRecord): Boolean {
+        renderer.appendPlainText(fileWriter, record)
+        return true
+    }
+
+    override fun flush() {
+        fileWriter.flush()
+    }
+
+    override fun close() {
+        fileWriter.close()
+    }
+}
+
+/**
+ * Encodes records in the [BinaryLogFormat] into a buffer which is written to a [FileChannel] on [flush], or
+ * earlier when it fills up.
+ */
+internal class BinaryLogRecordSink(file: File) : LogRecordSink {
+    private val channel: FileChannel = FileOutputStream(file).channel
+    private val buffer: ByteBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE)
+
+    init {
+        BinaryLogFormat.writeFileHeader(buffer)
+    }
+
+    override fun append(record: LogRecord): Boolean {
+        val message = record.message.toByteArray(Charsets.UTF_8)
+        val recordSize = BinaryLogFormat.RECORD_HEADER_SIZE + message.size
+        if (buffer.remaining() < recordSize) {
+            flush()
+        }
+        BinaryLogFormat.writeRecordHeader(buffer, record, message.size)
+        if (recordSize > buffer.capacity()) {
+            // too large for the buffer, write the message straight to the channel after its header
+            flush()
+            writeFully(ByteBuffer.wrap(message))
+        } else {
+            buffer.put(message)
+        }
+        return true
+    }
+
+    override fun flush() {
+        buffer.flip()
+        writeFully(buffer)
+        buffer.clear()
+    }
+
+    override fun close() {
+        flush()
+        channel.close()
+    }
+
+    private fun writeFully(source: ByteBuffer) {
+        while (source.hasRemaining()) {
+            channel.write(source)
+        }
+    }
+
+    companion object {
+        private const val BUFFER_SIZE = 64 * 1024
+    }
+}
+
+/**
+ * Stores records in the [BinaryLogFormat] into a memory-mapped file of a fixed size. Appending is a memory copy,
+ * the kernel writes the dirty pages back even if the process crashes, and [flush] forces them to disk.
+ *
+ * On [close] the file is truncated to the used size, and the buffer is released. Java has no API to unmap a file,
+ * the mapping goes away once the buffer is garbage collected, and until then it's never touched again: pages past
+ * the truncated size can't be accessed anymore.
+ */
+internal class MappedLogRecordSink(file: File, segmentSize: Long) : LogRecordSink {
+    private val randomAccessFile = RandomAccessFile(file, "rw")
+    private var mappedBuffer: MappedByteBuffer? = randomAccessFile.channel.map(
+            FileChannel.MapMode.READ_WRITE,
+            0,
+            segmentSize.coerceIn(MIN_SEGMENT_SIZE, Int.MAX_VALUE.toLong())
+    )
+
+    private val buffer: MappedByteBuffer
+        get() = mappedBuffer ?: throw IOException("The segment is closed")
+
+    init {
+        BinaryLogFormat.writeFileHeader(buffer)
+    }
+
+    override fun append(record: LogRecord): Boolean {
+        val buffer = buffer
+        var message = record.message.toByteArray(Charsets.UTF_8)
+        val maxMessageSize = buffer.capacity() - BinaryLogFormat.FILE_HEADER_SIZE - BinaryLogFormat.RECORD_HEADER_SIZE
+        if (message.size > maxMessageSize) {
+            // would never fit, even in an empty segment
+            message = message.copyOf(maxMessageSize)
+        }
+        if (buffer.remaining() < BinaryLogFormat.RECORD_HEADER_SIZE + message.size) {
+            return false
+        }
+        BinaryLogFormat.writeRecordHeader(buffer, record, message.size)
+        buffer.put(message)
+        return true
+    }
+
+    override fun flush() {
+        buffer.force()
+    }
+
+    override fun close() {
+        val buffer = mappedBuffer ?: return
+        mappedBuffer = null
+        buffer.force()
+        randomAccessFile.channel.truncate(buffer.position().toLong())
+        randomAccessFile.close()
+    }
+
+    companion object {
+        private const val MIN_SEGMENT_SIZE = 4 * 1024L
+    }
+}
@@ -0,0 +1,32 @@
+package org.wordpress.android.util.helpers.logfile
+
+/**
+ * Controls when [LogFileWriter] closes its current log file and continues in a new one.
+ *
+ * @param maxFileSizeBytes: Rotate once the current file reaches this size, [UNLIMITED] to never rotate by size.
+ * This is also the size of [LogFileFormat.MAPPED] segments, which default to [DEFAULT_SEGMENT_SIZE_BYTES].
+ * @param maxFileAgeMs: Rotate once the current file was started this long ago, [UNLIMITED] to never rotate by age
+ * @param gzipRotatedFiles: Compress rotated files in the background, [LogFileDecoder] reads them transparently
+ * @param maxTotalSizeBytes: The disk budget for all log files, enforced through
+ * [LogFileProviderInterface.enforceDiskBudget] after each rotation, [UNLIMITED] to keep every file
+ */
+data class LogRotationPolicy @JvmOverloads constructor(
+    val maxFileSizeBytes: Long = UNLIMITED,
+    val maxFileAgeMs: Long = UNLIMITED,
+    val gzipRotatedFiles: Boolean = false,
+    val maxTotalSizeBytes: Long = UNLIMITED
+) {
+    internal fun isTooLarge(fileSizeBytes: Long) = maxFileSizeBytes != UNLIMITED && fileSizeBytes >= maxFileSizeBytes
+
+    internal fun isTooOld(fileAgeMs: Long) = maxFileAgeMs != UNLIMITED && fileAgeMs >= maxFileAgeMs
+
+    companion object {
+        const val UNLIMITED = 0L
+        const val DEFAULT_SEGMENT_SIZE_BYTES = 1024L * 1024L
+
+        /**
+         * Never rotates, a single file grows for as long as the writer lives.
+         */
+        @JvmField val NONE = LogRotationPolicy()
+    }
+}
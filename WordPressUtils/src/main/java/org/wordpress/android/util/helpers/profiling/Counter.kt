@@ -0,0 +1,22 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * A count of events, e.g. cache misses, which can be incremented from any thread without contention.
+ */
+class Counter {
+    private val value = LongAdder()
+
+    fun increment() {
+        value.increment()
+    }
+
+    fun add(delta: Long) {
+        value.add(delta)
+    }
+
+    fun get(): Long = value.sum()
+
+    internal fun getAndReset(): Long = value.sumThenReset()
+}
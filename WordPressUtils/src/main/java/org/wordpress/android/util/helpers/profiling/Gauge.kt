@@ -0,0 +1,24 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * The latest value of a measurement, e.g. the size of a queue.
+ */
+class Gauge {
+    private val value = AtomicLong()
+
+    fun set(newValue: Long) {
+        value.set(newValue)
+    }
+
+    fun add(delta: Long) {
+        value.addAndGet(delta)
+    }
+
+    fun get(): Long = value.get()
+
+    internal fun reset() {
+        value.set(0)
+    }
+}
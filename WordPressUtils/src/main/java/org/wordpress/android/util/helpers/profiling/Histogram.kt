@@ -0,0 +1,95 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicLongArray
+import java.util.concurrent.atomic.LongAdder
+
+/**
+ * A distribution of non-negative values, e.g. durations in nanoseconds, which can be updated from any thread
+ * without locking.
+ *
+ * Values are counted in log-linear buckets, the way HdrHistogram does it: every power of two range is split in
+ * [SUB_BUCKETS] buckets of equal width, so percentiles keep the same relative precision, about 3%, whatever the
+ * magnitude of the values. Values above [MAX_TRACKABLE_VALUE] are counted in the last bucket. The memory used is
+ * fixed, around 5KB.
+ */
+class Histogram {
+    private val buckets = AtomicLongArray(BUCKET_COUNT)
+    private val count = LongAdder()
+    private val sum = LongAdder()
+    private val min = AtomicLong(Long.MAX_VALUE)
+    private val max = AtomicLong(Long.MIN_VALUE)
+
+    fun record(value: Long) {
+        val recorded = value.coerceIn(0, MAX_TRACKABLE_VALUE)
+        buckets.incrementAndGet(bucketIndex(recorded))
+        count.increment()
+        sum.add(recorded)
+        var current = min.get()
+        while (recorded < current && !min.compareAndSet(current, recorded)) {
+            current = min.get()
+        }
+        current = max.get()
+        while (recorded > current && !max.compareAndSet(current, recorded)) {
+            current = max.get()
+        }
+    }
+
+    /**
+     * Returns the recorded distribution. Values recorded while the snapshot is taken may be partially included.
+     */
+    fun snapshot(): HistogramSnapshot = takeSnapshot(false)
+
+    /**
+     * Returns the recorded distribution and starts over, without losing values recorded concurrently.
+     */
+    fun snapshotAndReset(): HistogramSnapshot = takeSnapshot(true)
+
+    fun reset() {
+        takeSnapshot(true)
+    }
+
+    private fun takeSnapshot(reset: Boolean): HistogramSnapshot {
+        val counts = LongArray(BUCKET_COUNT) { if (reset) buckets.getAndSet(it, 0) else buckets.get(it) }
+        val snapshotCount = if (reset) count.sumThenReset() else count.sum()
+        val snapshotSum = if (reset) sum.sumThenReset() else sum.sum()
+        val snapshotMin = if (reset) min.getAndSet(Long.MAX_VALUE) else min.get()
+        val snapshotMax = if (reset) max.getAndSet(Long.MIN_VALUE) else max.get()
+        return HistogramSnapshot(counts, snapshotCount, snapshotSum, snapshotMin, snapshotMax)
+    }
+
+    companion object {
+        const val MAX_TRACKABLE_VALUE = (1L shl 40) - 1
+        private const val SUB_BUCKET_BITS = 4
+        private const val SUB_BUCKETS = 1 shl SUB_BUCKET_BITS
+        internal const val BUCKET_COUNT = (40 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS
+
+        /**
+         * Values below 2 * [SUB_BUCKETS] have a bucket each, above that every power of two range is split in
+         * [SUB_BUCKETS] buckets
+         */
+        internal fun bucketIndex(value: Long): Int {
+            if (value < 2 * SUB_BUCKETS) {
+                return value.toInt()
+            }
+            val shift = 63 - java.lang.Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS
+            return shift * SUB_BUCKETS + (value ushr shift).toInt()
+        }
+
+        internal fun bucketLowerBound(index: Int): Long {
+            if (index < 2 * SUB_BUCKETS) {
+                return index.toLong()
+            }
+            val shift = index / SUB_BUCKETS - 1
+            return (index - shift * SUB_BUCKETS).toLong() shl shift
+        }
+
+        internal fun bucketUpperBound(index: Int): Long {
+            if (index < 2 * SUB_BUCKETS) {
+                return index.toLong()
+            }
+            val shift = index / SUB_BUCKETS - 1
+            return ((index - shift * SUB_BUCKETS + 1).toLong() shl shift) - 1
+        }
+    }
+}
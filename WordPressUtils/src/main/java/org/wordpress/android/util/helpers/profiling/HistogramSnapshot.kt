@@ -0,0 +1,42 @@
+package org.wordpress.android.util.helpers.profiling
+
+/**
+ * The distribution recorded by a [Histogram] at a point in time.
+ */
+class HistogramSnapshot internal constructor(
+    private val counts: LongArray,
+    val count: Long,
+    val sum: Long,
+    min: Long,
+    max: Long
+) {
+    val min: Long = if (count == 0L) 0 else min
+    val max: Long = if (count == 0L) 0 else max
+    val mean: Double = if (count == 0L) 0.0 else sum.toDouble() / count
+
+    /**
+     * Returns the value below which [percentile] percent of the recorded values fall, e.g. 99.0 for the p99, within
+     * the precision of the histogram buckets.
+     */
+    fun percentile(percentile: Double): Long {
+        if (count == 0L) {
+            return 0
+        }
+        val rank = maxOf(1L, Math.ceil(percentile.coerceIn(0.0, 100.0) / 100.0 * count).toLong())
+        var seen = 0L
+        for (index in counts.indices) {
+            seen += counts[index]
+            if (seen >= rank) {
+                val lower = Histogram.bucketLowerBound(index)
+                val upper = Histogram.bucketUpperBound(index)
+                return (lower + (upper - lower) / 2).coerceIn(min, max)
+            }
+        }
+        return max
+    }
+
+    override fun toString(): String {
+        return "count=$count min=$min p50=${percentile(50.0)} p90=${percentile(90.0)} p99=${percentile(99.0)} " +
+                "max=$max"
+    }
+}
@@ -0,0 +1,8 @@
+package org.wordpress.android.util.helpers.profiling
+
+/**
+ * Receives the aggregated metrics, e.g. to send them to an analytics service.
+ */
+fun interface MetricsExporter {
+    fun export(snapshot: MetricsSnapshot)
+}
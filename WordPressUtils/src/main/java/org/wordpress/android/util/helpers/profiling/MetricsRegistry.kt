@@ -0,0 +1,52 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * Named counters, gauges, timers and histograms which can be updated from any thread.
+ *
+ * Metrics are created on first use and never removed, so hot paths should look them up once and keep them, e.g. in
+ * a static field. [reset] clears their values instead.
+ */
+class MetricsRegistry {
+    private val counters = ConcurrentHashMap<String, Counter>()
+    private val gauges = ConcurrentHashMap<String, Gauge>()
+    private val timers = ConcurrentHashMap<String, Timer>()
+    private val histograms = ConcurrentHashMap<String, Histogram>()
+
+    fun counter(name: String): Counter = counters.getOrPut(name) { Counter() }
+
+    fun gauge(name: String): Gauge = gauges.getOrPut(name) { Gauge() }
+
+    fun timer(name: String): Timer = timers.getOrPut(name) { Timer() }
+
+    fun histogram(name: String): Histogram = histograms.getOrPut(name) { Histogram() }
+
+    fun snapshot() = MetricsSnapshot(
+            counters.mapValues { it.value.get() },
+            gauges.mapValues { it.value.get() },
+            timers.mapValues { it.value.snapshot() },
+            histograms.mapValues { it.value.snapshot() }
+    )
+
+    /**
+     * Returns the current values and resets them, e.g. to report the metrics of each session. Gauges keep their
+     * value.
+     */
+    fun snapshotAndReset() = MetricsSnapshot(
+            counters.mapValues { it.value.getAndReset() },
+            gauges.mapValues { it.value.get() },
+            timers.mapValues { it.value.snapshotAndReset() },
+            histograms.mapValues { it.value.snapshotAndReset() }
+    )
+
+    /**
+     * Resets the value of every metric
+     */
+    fun reset() {
+        counters.values.forEach { it.getAndReset() }
+        gauges.values.forEach { it.reset() }
+        timers.values.forEach { it.snapshotAndReset() }
+        histograms.values.forEach { it.reset() }
+    }
+}
@@ -0,0 +1,21 @@
+package org.wordpress.android.util.helpers.profiling
+
+/**
+ * The values of every metric of a [MetricsRegistry] at a point in time, by name. Timer values are in nanoseconds.
+ */
+data class MetricsSnapshot(
+    val counters: Map<String, Long>,
+    val gauges: Map<String, Long>,
+    val timers: Map<String, HistogramSnapshot>,
+    val histograms: Map<String, HistogramSnapshot>
+) {
+    /**
+     * Returns one line per metric, sorted by name, e.g. to write them to the log
+     */
+    fun toLines(): List<String> {
+        return counters.toSortedMap().map { (name, value) -> "$name: $value" } +
+                gauges.toSortedMap().map { (name, value) -> "$name: $value" } +
+                timers.toSortedMap().map { (name, value) -> "$name: $value ns" } +
+                histograms.toSortedMap().map { (name, value) -> "$name: $value" }
+    }
+}
@@ -0,0 +1,40 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.ThreadLocalRandom
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Decides which root spans of a [Tracer] are recorded. Spans started inside a root span share its decision, so
+ * recorded span trees are always complete.
+ */
+fun interface SamplingPolicy {
+    /**
+     * Called when a root span starts, returns true to record it
+     */
+    fun shouldSample(): Boolean
+
+    companion object {
+        @JvmField val ALWAYS = SamplingPolicy { true }
+
+        @JvmField val NEVER = SamplingPolicy { false }
+
+        /**
+         * Records one root span out of every [n]
+         */
+        @JvmStatic
+        fun oneIn(n: Int): SamplingPolicy {
+            require(n > 0) { "n must be greater than zero" }
+            val started = AtomicLong()
+            return SamplingPolicy { started.getAndIncrement() % n == 0L }
+        }
+
+        /**
+         * Records each root span with the given [probability], between 0 and 1
+         */
+        @JvmStatic
+        fun probability(probability: Double): SamplingPolicy {
+            require(probability in 0.0..1.0) { "probability must be between 0 and 1" }
+            return SamplingPolicy { ThreadLocalRandom.current().nextDouble() < probability }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.io.Closeable
+import java.util.Locale
+
+/**
+ * A timed operation started by [Tracer.startSpan], and closed when the operation is done, e.g. with
+ * try-with-resources in Java or [use] in Kotlin.
+ *
+ * Spans started while another span is open on the same thread become its children. Work handed to another thread
+ * can be attached to a span with [Tracer.startSpan] and an explicit parent.
+ *
+ * When the [SamplingPolicy] of the tracer skips a span tree, its spans record nothing and [isRecording] is false.
+ * They're instances shared by every unsampled span opened at the same depth on a thread, so closing one more than
+ * once has no effect until another unsampled span is opened at its depth.
+ */
+class Span internal constructor(
+    val name: String,
+    val parent: Span?,
+    private val tracer: Tracer,
+    /**
+     * The span which was open on this thread before this one, restored when it's closed
+     */
+    internal val enclosing: Span?,
+    val isRecording: Boolean,
+    /**
+     * Where the duration of the span is recorded, resolved when it starts so closing it doesn't look it up
+     */
+    internal val timer: Timer?,
+    /**
+     * The depth of an unsampled span among the unsampled spans open on its thread, starting at 1
+     */
+    internal val unsampledDepth: Int = 0
+) : Closeable {
+    internal val thread: Thread = Thread.currentThread()
+    val startNanos: Long = System.nanoTime()
+
+    /**
+     * The duration of the span in nanoseconds, or -1 while it's open
+     */
+    @Volatile var durationNanos = -1L
+        private set
+
+    private var children: MutableList<Span>? = null
+
+    val isFinished: Boolean
+        get() = durationNanos >= 0
+
+    /**
+     * Returns the spans started with this one as parent, in the order they were started
+     */
+    fun getChildren(): List<Span> = synchronized(this) { children?.toList() ?: emptyList() }
+
+    /**
+     * Ends the span, closing it more than once has no effect
+     */
+    override fun close() {
+        tracer.finish(this)
+    }
+
+    internal fun addChild(child: Span) {
+        synchronized(this) {
+            (children ?: ArrayList<Span>().also { children = it }).add(child)
+        }
+    }
+
+    /**
+     * Returns true the first time it's called, when the span is closed
+     */
+    internal fun markFinished(endNanos: Long): Boolean {
+        synchronized(this) {
+            if (isFinished) {
+                return false
+            }
+            durationNanos = endNanos - startNanos
+            return true
+        }
+    }
+
+    /**
+     * Returns the span and its children as indented lines with their durations in milliseconds, e.g. to write
+     * them to the log
+     */
+    fun toLines(): List<String> {
+        val lines = ArrayList<String>()
+        appendLines(lines, 0)
+        return lines
+    }
+
+    private fun appendLines(lines: MutableList<String>, depth: Int) {
+        val duration = if (isFinished) String.format(Locale.US, "%.3f ms", durationNanos / NANOS_PER_MILLI) else "running"
+        lines.add("  ".repeat(depth) + "$name: $duration")
+        getChildren().forEach { it.appendLines(lines, depth + 1) }
+    }
+
+    private companion object {
+        const val NANOS_PER_MILLI = 1_000_000.0
+    }
+}
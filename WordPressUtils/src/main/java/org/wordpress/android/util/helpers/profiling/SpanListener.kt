@@ -0,0 +1,8 @@
+package org.wordpress.android.util.helpers.profiling
+
+/**
+ * Receives the root spans of a [Tracer] once they're closed, with the tree of their child spans.
+ */
+fun interface SpanListener {
+    fun onSpanFinished(span: Span)
+}
@@ -0,0 +1,54 @@
+package org.wordpress.android.util.helpers.profiling
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Records durations, in nanoseconds, in a [Histogram].
+ *
+ * From Java, time a block with:
+ * ```
+ * long start = timer.start();
+ * try {
+ *     ...
+ * } finally {
+ *     timer.stop(start);
+ * }
+ * ```
+ */
+class Timer {
+    private val histogram = Histogram()
+
+    /**
+     * Returns the start time to pass to [stop]
+     */
+    fun start(): Long = System.nanoTime()
+
+    /**
+     * Records the time elapsed since [startNanos], returned by [start], and returns it
+     */
+    fun stop(startNanos: Long): Long {
+        val elapsed = System.nanoTime() - startNanos
+        histogram.record(elapsed)
+        return elapsed
+    }
+
+    fun record(duration: Long, unit: TimeUnit) {
+        histogram.record(unit.toNanos(duration))
+    }
+
+    /**
+     * Runs [block] and records how long it took
+     */
+    fun <T> time(block: () -> T): T {
+        val start = start()
+        try {
+            return block()
+        } finally {
+            stop(start)
+        }
+    }
+
+    fun snapshot(): HistogramSnapshot = histogram.snapshot()
+
+    internal fun snapshotAndReset(): HistogramSnapshot = histogram.snapshotAndReset()
+}
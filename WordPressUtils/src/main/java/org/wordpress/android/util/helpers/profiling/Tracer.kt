@@ -0,0 +1,135 @@
+package org.wordpress.android.util.helpers.profiling
+
+import android.os.Trace
+import android.util.Log
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.TimeUnit
+
+/**
+ * Starts nestable [Span]s which any number of threads can use at once, each thread keeping track of its innermost
+ * open span.
+ *
+ * Every span is also an `android.os.Trace` section, so it shows up in Perfetto and systrace captures, and its
+ * duration is recorded by the `span.<name>` timer of the [MetricsRegistry]. Closed root spans are delivered to the
+ * [SpanListener]s with their children.
+ *
+ * Set a [samplingPolicy] to only record some span trees. The others cost a thread-local lookup and, once a thread
+ * reached their depth, no allocation, so spans can stay in release builds. Timers then only count the recorded spans.
+ *
+ * @param metrics: Where span durations are recorded
+ */
+class Tracer(private val metrics: MetricsRegistry) {
+    private val currentSpan = ThreadLocal<Span?>()
+    private val listeners = CopyOnWriteArrayList<SpanListener>()
+
+    /**
+     * The timer of each span name, so starting a span doesn't build the name of its timer
+     */
+    private val timers = ConcurrentHashMap<String, Timer>()
+
+    @Volatile var samplingPolicy: SamplingPolicy = SamplingPolicy.ALWAYS
+
+    /**
+     * The unsampled spans open on each thread, so the spans started inside them aren't sampled either
+     */
+    private val unsampledSpans = object : ThreadLocal<UnsampledSpans>() {
+        override fun initialValue() = UnsampledSpans()
+    }
+
+    /**
+     * Starts a span on the current thread, as a child of the innermost span open on this thread, if any.
+     * It must be closed on this thread, after the spans started inside it.
+     */
+    fun startSpan(name: String): Span {
+        if (unsampledSpans.get().depth > 0) {
+            return enterUnsampledSpan()
+        }
+        return startSpan(name, currentSpan.get())
+    }
+
+    /**
+     * Starts a span on the current thread as a child of [parent], e.g. a span started on another thread which
+     * handed work to this one. It must be closed on this thread, after the spans started inside it.
+     */
+    fun startSpan(name: String, parent: Span?): Span {
+        if ((parent != null && !parent.isRecording) || (parent == null && !sampleRootSpan())) {
+            return enterUnsampledSpan()
+        }
+        val span = Span(name, parent, this, currentSpan.get(), true, timerFor(name))
+        parent?.addChild(span)
+        currentSpan.set(span)
+        Trace.beginSection(name.take(MAX_SECTION_NAME_LENGTH))
+        return span
+    }
+
+    /**
+     * Returns the innermost span open on the current thread, or null
+     */
+    fun currentSpan(): Span? = currentSpan.get()
+
+    fun addListener(listener: SpanListener) {
+        listeners.add(listener)
+    }
+
+    fun removeListener(listener: SpanListener) {
+        listeners.remove(listener)
+    }
+
+    private fun timerFor(name: String) = timers[name] ?: timers.getOrPut(name) { metrics.timer(TIMER_PREFIX + name) }
+
+    private fun sampleRootSpan() = unsampledSpans.get().depth == 0 && samplingPolicy.shouldSample()
+
+    private fun enterUnsampledSpan(): Span {
+        val spans = unsampledSpans.get()
+        if (spans.tokens.size == spans.depth) {
+            spans.tokens.add(Span(UNSAMPLED_SPAN_NAME, null, this, null, false, null, spans.depth + 1))
+        }
+        return spans.tokens[spans.depth++]
+    }
+
+    internal fun finish(span: Span) {
+        if (!span.isRecording) {
+            val spans = unsampledSpans.get()
+            // a span deeper than the open ones is closed already, closing it again must not close its parent
+            if (span.thread === Thread.currentThread() && span.unsampledDepth <= spans.depth) {
+                spans.depth = span.unsampledDepth - 1
+            }
+            return
+        }
+        if (!span.markFinished(System.nanoTime())) {
+            return
+        }
+        if (span.thread === Thread.currentThread()) {
+            Trace.endSection()
+            if (currentSpan.get() === span) {
+                currentSpan.set(span.enclosing)
+            } else {
+                Log.w(TAG, "Span ${span.name} closed before the spans started inside it")
+            }
+        } else {
+            // the trace section and the current span belong to the thread which started the span
+            Log.w(TAG, "Span ${span.name} closed on another thread than the one which started it")
+        }
+        span.timer?.record(span.durationNanos, TimeUnit.NANOSECONDS)
+        if (span.parent == null) {
+            listeners.forEach { it.onSpanFinished(span) }
+        }
+    }
+
+    /**
+     * Every unsampled span open on a thread is the token of its depth, reused by the next unsampled span opened at
+     * that depth
+     */
+    private class UnsampledSpans {
+        var depth = 0
+        val tokens = ArrayList<Span>()
+    }
+
+    private companion object {
+        const val TAG = "Tracer"
+        const val TIMER_PREFIX = "span."
+        const val MAX_SECTION_NAME_LENGTH = 127
+        const val UNSAMPLED_SPAN_NAME = "unsampled"
+    }
+}
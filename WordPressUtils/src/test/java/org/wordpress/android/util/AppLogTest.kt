@@ -0,0 +1,249 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.AppLog.LogLevel
+import org.wordpress.android.util.AppLog.T
+import org.wordpress.android.util.helpers.logfile.LogExportFormat
+import java.io.ByteArrayOutputStream
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class AppLogTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    @Before
+    fun setup() {
+        AppLog.enableRecording(true)
+    }
+
+    @After
+    fun tearDown() {
+        AppLog.enableRecording(false)
+        AppLog.removeListeners()
+        AppLog.resetLevels()
+        AppLog.removeRateLimits()
+        AppLog.setMaxEntries(99)
+    }
+
+    @Test
+    fun `recorded log keeps only the most recent entries in order`() {
+        AppLog.setMaxEntries(3)
+
+        (1..5).forEach { AppLog.i(T.TESTS, "message-$it") }
+
+        val lines = AppLog.toPlainText(context).lines().drop(AppLog.HEADER_LINE_COUNT + 1).filter { it.isNotEmpty() }
+        assertThat(lines).hasSize(3)
+        assertThat(lines[0]).startsWith("01 - ").endsWith("message-3")
+        assertThat(lines[1]).startsWith("02 - ").endsWith("message-4")
+        assertThat(lines[2]).startsWith("03 - ").endsWith("message-5")
+    }
+
+    @Test
+    fun `resizing the buffer carries over the most recent entries`() {
+        (1..5).forEach { AppLog.i(T.TESTS, "message-$it") }
+
+        AppLog.setMaxEntries(2)
+
+        val html = AppLog.toHtmlList(context).drop(AppLog.HEADER_LINE_COUNT)
+        assertThat(html).hasSize(2)
+        assertThat(html[0]).endsWith("message-4")
+        assertThat(html[1]).endsWith("message-5")
+    }
+
+    @Test
+    fun `concurrent writers never exceed the configured capacity`() {
+        AppLog.setMaxEntries(10)
+
+        val threads = (1..4).map { thread ->
+            Thread { repeat(500) { AppLog.d(T.TESTS, "thread-$thread-$it") } }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        assertThat(AppLog.toHtmlList(context).drop(AppLog.HEADER_LINE_COUNT)).hasSize(10)
+    }
+
+    @Test
+    fun `entries logged while the buffer is resized are kept`() {
+        AppLog.setMaxEntries(3000)
+
+        val threads = (1..4).map { thread ->
+            Thread { repeat(500) { AppLog.d(T.TESTS, "thread-$thread-$it") } }
+        }
+        threads.forEach { it.start() }
+        var resizes = 0
+        while (threads.any { it.isAlive }) {
+            AppLog.setMaxEntries(if (resizes++ % 2 == 0) 4000 else 3000)
+        }
+        threads.forEach { it.join() }
+
+        val html = AppLog.toHtmlList(context).drop(AppLog.HEADER_LINE_COUNT)
+        assertThat(html).hasSize(2000)
+        (1..4).forEach { thread ->
+            val prefix = "thread-$thread-"
+            val messages = html.filter { it.contains(prefix) }.map { it.substringAfterLast(prefix) }
+            assertThat(messages).isEqualTo((0 until 500).map { it.toString() })
+        }
+    }
+
+    @Test
+    fun `removing async listeners doesn't wait for them while holding the lock`() {
+        val delivering = CountDownLatch(1)
+        AppLog.addAsyncListener({ _, _, _ ->
+            delivering.countDown()
+            Thread.sleep(100)
+            AppLog.setMaxEntries(99)
+        }, 10, AsyncAppLogListener.OverflowPolicy.BLOCK)
+        AppLog.i(T.TESTS, "message")
+        delivering.await(5, TimeUnit.SECONDS)
+
+        val remover = Thread { AppLog.removeListeners() }
+        remover.start()
+        remover.join(5_000)
+
+        assertThat(remover.isAlive).isFalse
+    }
+
+    @Test
+    fun `listeners added while logging receive subsequent entries only`() {
+        val received = mutableListOf<String>()
+        AppLog.i(T.TESTS, "before")
+        AppLog.addListener { _, _, message -> received.add(message) }
+
+        AppLog.w(T.TESTS, "after")
+
+        assertThat(received).containsExactly("after")
+    }
+
+    @Test
+    fun `removed listeners no longer receive entries`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { _, _, message -> received.add(message) }
+        AppLog.removeListeners()
+
+        AppLog.e(T.TESTS, "ignored")
+
+        assertThat(received).isEmpty()
+    }
+
+    @Test
+    fun `filtered levels are dropped for the configured tag only`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { tag, level, _ -> received.add("$tag-$level") }
+        AppLog.setMinLevel(T.MEDIA, LogLevel.d)
+
+        AppLog.v(T.MEDIA, "dropped")
+        AppLog.d(T.MEDIA, "kept")
+        AppLog.v(T.READER, "kept")
+
+        assertThat(received).containsExactly("MEDIA-d", "READER-v")
+    }
+
+    @Test
+    fun `disabled levels can be raised again at runtime`() {
+        AppLog.setLevelEnabled(T.PROFILING, LogLevel.v, false)
+        assertThat(AppLog.isLoggable(T.PROFILING, LogLevel.v)).isFalse
+        assertThat(AppLog.isLoggable(T.PROFILING, LogLevel.d)).isTrue
+
+        AppLog.setLevelEnabled(T.PROFILING, LogLevel.v, true)
+        assertThat(AppLog.isLoggable(T.PROFILING, LogLevel.v)).isTrue
+    }
+
+    @Test
+    fun `lazy messages are only built when the level is loggable`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { _, _, message -> received.add(message) }
+        AppLog.setMinLevel(T.MEDIA, LogLevel.i)
+        var supplierCalls = 0
+
+        AppLog.d(T.MEDIA) { supplierCalls++; "dropped" }
+        AppLog.i(T.MEDIA) { supplierCalls++; "kept" }
+        AppLog.w(T.MEDIA, "%s of %d", "one", 2)
+
+        assertThat(supplierCalls).isEqualTo(1)
+        assertThat(received).containsExactly("kept", "one of 2")
+    }
+
+    @Test
+    fun `export streams the recorded log as json lines`() {
+        AppLog.setMaxEntries(2)
+        AppLog.d(T.READER, "first")
+        AppLog.e(T.MEDIA, "second \"quoted\"")
+
+        val output = ByteArrayOutputStream()
+        AppLog.export(context, output, LogExportFormat.JSON_LINES, false)
+
+        val lines = output.toString("UTF-8").lines().filter { it.isNotEmpty() }
+        assertThat(lines).hasSize(AppLog.HEADER_LINE_COUNT + 2)
+        assertThat(lines[0]).startsWith("{\"header\":")
+        assertThat(lines[2]).contains("\"tag\":\"READER\",\"level\":\"d\",\"message\":\"first\"")
+        assertThat(lines[3]).endsWith("\"message\":\"second \\\"quoted\\\"\"}")
+    }
+
+    @Test
+    fun `rate limited messages are collapsed into a summary`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { tag, _, message -> received.add("$tag $message") }
+        AppLog.setRateLimit(T.READER, 2, 10.0)
+
+        repeat(6) { AppLog.d(T.READER, "syncing") }
+        AppLog.d(T.MEDIA, "other tag")
+        AppLog.e(T.READER, "errors are kept")
+        Thread.sleep(150)
+        AppLog.d(T.READER, "synced")
+
+        assertThat(received).containsExactly(
+                "READER syncing",
+                "READER syncing",
+                "MEDIA other tag",
+                "READER errors are kept",
+                "READER suppressed 4 similar messages",
+                "READER synced"
+        )
+    }
+
+    @Test
+    fun `format strings are rate limited per call site`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { _, _, message -> received.add(message) }
+        AppLog.setRateLimit(T.MEDIA, 1, 0.001)
+
+        repeat(3) { AppLog.d(T.MEDIA, "uploading %d", it) }
+        repeat(3) { AppLog.d(T.MEDIA, "uploaded %d", it) }
+
+        assertThat(received).containsExactly("uploading 0", "uploaded 0")
+    }
+
+    @Test
+    fun `repeated stack traces are logged as a reference to the first one`() {
+        val received = mutableListOf<String>()
+        AppLog.addListener { _, _, message -> received.add(message) }
+
+        repeat(3) {
+            try {
+                throw IllegalStateException("attempt $it")
+            } catch (e: IllegalStateException) {
+                AppLog.e(T.API, e)
+            }
+        }
+
+        assertThat(received).hasSize(6)
+        assertThat(received[0]).isEqualTo("attempt 0")
+        val id = received[1].substringAfter("StackTrace #").substringBefore(":")
+        assertThat(received[1]).contains("java.lang.IllegalStateException: attempt 0")
+        assertThat(received[2]).isEqualTo("attempt 1")
+        assertThat(received[3]).isEqualTo("StackTrace: same as #$id (seen 2 times)")
+        assertThat(received[5]).isEqualTo("StackTrace: same as #$id (seen 3 times)")
+    }
+}
@@ -0,0 +1,140 @@
+package org.wordpress.android.util
+
+import android.os.Build
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.AppLog.LogLevel
+import org.wordpress.android.util.AppLog.T
+import org.wordpress.android.util.AsyncAppLogListener.OverflowPolicy
+import java.util.Collections
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class AsyncAppLogListenerTest {
+    private val received: MutableList<String> = Collections.synchronizedList(mutableListOf())
+    private val firstEntryStarted = CountDownLatch(1)
+    private val releaseListener = CountDownLatch(1)
+
+    /**
+     * Blocks on the first entry until [releaseListener] is counted down, so the following entries queue up
+     */
+    private val slowListener = AppLog.AppLogListener { _, _, message ->
+        firstEntryStarted.countDown()
+        releaseListener.await(5, TimeUnit.SECONDS)
+        received.add(message)
+    }
+
+    @Test
+    fun `drop newest keeps the queued entries when the queue is full`() {
+        val listener = AsyncAppLogListener(slowListener, 2, OverflowPolicy.DROP_NEWEST)
+
+        listener.onLog(T.TESTS, LogLevel.d, "in flight")
+        firstEntryStarted.await(5, TimeUnit.SECONDS)
+        (1..4).forEach { listener.onLog(T.TESTS, LogLevel.d, "queued-$it") }
+
+        assertThat(listener.queueDepth).isEqualTo(2)
+        assertThat(listener.droppedCount).isEqualTo(2)
+
+        releaseListener.countDown()
+        awaitDelivery(listener, 3)
+        listener.shutdown()
+        assertThat(received).containsExactly("in flight", "queued-1", "queued-2")
+    }
+
+    @Test
+    fun `drop oldest keeps the most recent entries when the queue is full`() {
+        val listener = AsyncAppLogListener(slowListener, 2, OverflowPolicy.DROP_OLDEST)
+
+        listener.onLog(T.TESTS, LogLevel.d, "in flight")
+        firstEntryStarted.await(5, TimeUnit.SECONDS)
+        (1..4).forEach { listener.onLog(T.TESTS, LogLevel.d, "queued-$it") }
+
+        assertThat(listener.droppedCount).isEqualTo(2)
+
+        releaseListener.countDown()
+        awaitDelivery(listener, 3)
+        listener.shutdown()
+        assertThat(received).containsExactly("in flight", "queued-3", "queued-4")
+    }
+
+    @Test
+    fun `entries are delivered off the logging thread`() {
+        val loggingThread = Thread.currentThread()
+        var deliveryThread: Thread? = null
+        val delivered = CountDownLatch(1)
+        val listener = AsyncAppLogListener({ _, _, _ ->
+            deliveryThread = Thread.currentThread()
+            delivered.countDown()
+        }, 10, OverflowPolicy.BLOCK)
+
+        listener.onLog(T.TESTS, LogLevel.i, "message")
+
+        assertThat(delivered.await(5, TimeUnit.SECONDS)).isTrue
+        assertThat(deliveryThread).isNotSameAs(loggingThread)
+        listener.shutdown()
+    }
+
+    @Test
+    fun `shutdown waits for the queued entries without interrupting the listener`() {
+        val interrupted = mutableListOf<Boolean>()
+        val listener = AsyncAppLogListener({ _, _, message ->
+            Thread.sleep(20)
+            interrupted.add(Thread.currentThread().isInterrupted)
+            received.add(message)
+        }, 10, OverflowPolicy.BLOCK)
+
+        (1..3).forEach { listener.onLog(T.TESTS, LogLevel.d, "queued-$it") }
+        listener.shutdown()
+
+        assertThat(received).containsExactly("queued-1", "queued-2", "queued-3")
+        assertThat(interrupted).containsOnly(false)
+        listener.onLog(T.TESTS, LogLevel.d, "after shutdown")
+        assertThat(listener.queueDepth).isEqualTo(0)
+    }
+
+    @Test
+    fun `shutdown returns when the queue is full`() {
+        val listener = AsyncAppLogListener(slowListener, 2, OverflowPolicy.DROP_OLDEST)
+        listener.onLog(T.TESTS, LogLevel.d, "in flight")
+        firstEntryStarted.await(5, TimeUnit.SECONDS)
+        (1..2).forEach { listener.onLog(T.TESTS, LogLevel.d, "queued-$it") }
+
+        val shutdown = Thread { listener.shutdown() }
+        shutdown.start()
+        releaseListener.countDown()
+        shutdown.join(5_000)
+
+        assertThat(shutdown.isAlive).isFalse
+        assertThat(received).containsExactly("in flight", "queued-1", "queued-2")
+    }
+
+    @Test
+    fun `entries logged by the listener itself don't block on a full queue`() {
+        lateinit var listener: AsyncAppLogListener
+        listener = AsyncAppLogListener({ _, _, message ->
+            if (message == "first") {
+                (1..2).forEach { listener.onLog(T.TESTS, LogLevel.d, "nested-$it") }
+            }
+            received.add(message)
+        }, 1, OverflowPolicy.BLOCK)
+
+        listener.onLog(T.TESTS, LogLevel.d, "first")
+        awaitDelivery(listener, 2)
+        listener.shutdown()
+
+        assertThat(received).containsExactly("first", "nested-1")
+        assertThat(listener.droppedCount).isEqualTo(1)
+    }
+
+    private fun awaitDelivery(listener: AsyncAppLogListener, count: Long) {
+        val deadline = System.currentTimeMillis() + 5_000
+        while (listener.deliveredCount < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10)
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.wordpress.android.util
+
+import android.content.ComponentCallbacks2
+import android.graphics.Bitmap
+import android.os.Build
+import android.util.DisplayMetrics
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class BitmapPoolTest {
+    private val pool = BitmapPool(3 * bytes(100, 100))
+
+    @Test
+    fun `pooled bitmaps large enough are reused`() {
+        val pooled = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+        pool.put(pooled)
+
+        val bitmap = pool.get(80, 80, Bitmap.Config.ARGB_8888)
+
+        assertThat(bitmap).isSameAs(pooled)
+        assertThat(bitmap.width).isEqualTo(80)
+        assertThat(pool.size).isEqualTo(0L)
+    }
+
+    @Test
+    fun `reused bitmaps get the default density back`() {
+        val pooled = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+        pooled.density = 1000
+        pool.put(pooled)
+
+        val bitmap = pool.get(80, 80, Bitmap.Config.ARGB_8888)
+
+        assertThat(bitmap).isSameAs(pooled)
+        assertThat(bitmap.density).isEqualTo(DisplayMetrics.DENSITY_DEVICE_STABLE)
+    }
+
+    @Test
+    fun `much larger bitmaps are not reused for small images`() {
+        val pooled = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+        pool.put(pooled)
+
+        val bitmap = pool.get(10, 10, Bitmap.Config.ARGB_8888)
+
+        assertThat(bitmap).isNotSameAs(pooled)
+        assertThat(pool.size).isEqualTo(bytes(100, 100))
+    }
+
+    @Test
+    fun `the bitmaps pooled the longest are recycled over budget`() {
+        val bitmaps = (1..4).map { Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888) }
+        bitmaps.forEach { pool.put(it) }
+
+        assertThat(pool.size).isEqualTo(3 * bytes(100, 100))
+        assertThat(bitmaps.map { it.isRecycled }).containsExactly(true, false, false, false)
+    }
+
+    @Test
+    fun `immutable and repeated bitmaps are ignored`() {
+        val bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+        pool.put(bitmap)
+        pool.put(bitmap)
+        pool.put(bitmap.copy(Bitmap.Config.ARGB_8888, false))
+
+        assertThat(pool.size).isEqualTo(bytes(100, 100))
+    }
+
+    @Test
+    fun `trimming memory in the background empties the pool`() {
+        val bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+        pool.put(bitmap)
+
+        pool.trimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND)
+
+        assertThat(pool.size).isEqualTo(0L)
+        assertThat(bitmap.isRecycled).isTrue
+    }
+
+    private fun bytes(width: Int, height: Int) = width * height * 4L
+}
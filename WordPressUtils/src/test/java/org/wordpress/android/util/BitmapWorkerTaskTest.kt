@@ -0,0 +1,92 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.os.Build
+import android.widget.ImageView
+import androidx.test.core.app.ApplicationProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.ImageUtils.BitmapWorkerTask.Priority
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class BitmapWorkerTaskTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val imageView = ImageView(context)
+    private val delivered = mutableListOf<String>()
+    private val callback = ImageUtils.BitmapWorkerCallback { path, _, _ -> delivered.add(path) }
+
+    @Test
+    fun `a new task for an image view cancels the previous one`() {
+        val first = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/first.jpg")
+
+        val second = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/second.jpg")
+
+        assertThat(first.isCancelled).isTrue
+        assertThat(second.isCancelled).isFalse
+    }
+
+    @Test
+    fun `tasks for other image views are not cancelled`() {
+        val first = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/first.jpg")
+
+        ImageUtils.BitmapWorkerTask(ImageView(context), 100, 100, callback).execute("/missing/first.jpg")
+
+        assertThat(first.isCancelled).isFalse
+    }
+
+    @Test
+    fun `cancelled tasks release their image view`() {
+        val task = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/photo.jpg")
+        assertThat(BitmapDecodeScheduler.getInstance().getTarget(imageView)).isSameAs(task)
+
+        task.cancel(false)
+
+        assertThat(BitmapDecodeScheduler.getInstance().getTarget(imageView)).isNull()
+    }
+
+    @Test
+    fun `cancelling a replaced task keeps the task which replaced it`() {
+        val first = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/first.jpg")
+        val second = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/second.jpg")
+
+        first.cancel(false)
+
+        assertThat(BitmapDecodeScheduler.getInstance().getTarget(imageView)).isSameAs(second)
+        second.cancel(false)
+    }
+
+    @Test
+    fun `cancelled tasks don't call the callback`() {
+        val task = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/photo.jpg")
+        task.cancel(false)
+
+        task.deliver(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888))
+
+        assertThat(delivered).isEmpty()
+    }
+
+    @Test
+    fun `live tasks call the callback`() {
+        val task = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/photo.jpg")
+
+        task.deliver(Bitmap.createBitmap(10, 10, Bitmap.Config.ARGB_8888))
+
+        assertThat(delivered).containsExactly("/missing/photo.jpg")
+    }
+
+    @Test
+    fun `tasks share a decode only for the same size`() {
+        val small = ImageUtils.BitmapWorkerTask(imageView, 100, 100, callback).execute("/missing/photo.jpg")
+        val large = ImageUtils.BitmapWorkerTask(ImageView(context), 200, 200, callback).execute("/missing/photo.jpg")
+        val other = ImageUtils.BitmapWorkerTask(ImageView(context), 100, 100, Priority.PREFETCH, callback)
+                .execute("/missing/photo.jpg")
+
+        assertThat(small.decodeKey).isNotEqualTo(large.decodeKey)
+        assertThat(small.decodeKey).isEqualTo(other.decodeKey)
+    }
+}
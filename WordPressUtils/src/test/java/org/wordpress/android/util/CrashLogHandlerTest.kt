@@ -0,0 +1,85 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class CrashLogHandlerTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val reportFile = File(context.cacheDir, "report.crash")
+    private val handledByPrevious = mutableListOf<Throwable>()
+    private val previousHandler = Thread.UncaughtExceptionHandler { _, throwable -> handledByPrevious.add(throwable) }
+
+    @After
+    fun tearDown() {
+        reportFile.delete()
+    }
+
+    @Test
+    fun `the report lists the cause chain and its frames`() {
+        val handler = CrashLogHandler(CrashLogHandler.DEFAULT_EMERGENCY_BUFFER_SIZE, previousHandler)
+        handler.setReportFile(reportFile)
+        val crash = IllegalStateException("outer é", IllegalArgumentException("inner"))
+
+        handler.uncaughtException(Thread.currentThread(), crash)
+
+        val report = reportFile.readText()
+        assertThat(report).startsWith("FATAL EXCEPTION: ${Thread.currentThread().name}\n")
+        assertThat(report).contains("java.lang.IllegalStateException: outer é\n\tat ")
+        assertThat(report).contains("\nCaused by: java.lang.IllegalArgumentException: inner\n\tat ")
+        assertThat(report).contains("\tat ${crash.stackTrace[0]}")
+        assertThat(handledByPrevious).containsExactly(crash)
+    }
+
+    @Test
+    fun `cyclic causes are rendered once`() {
+        val handler = CrashLogHandler(CrashLogHandler.DEFAULT_EMERGENCY_BUFFER_SIZE, previousHandler)
+        handler.setReportFile(reportFile)
+        val inner = IllegalArgumentException("inner")
+        val outer = IllegalStateException("outer", inner)
+        inner.initCause(outer)
+
+        handler.uncaughtException(Thread.currentThread(), outer)
+
+        assertThat(reportFile.readText().split("Caused by: ")).hasSize(2)
+    }
+
+    @Test
+    fun `the report is truncated to the emergency buffer`() {
+        val handler = CrashLogHandler(64, previousHandler)
+        handler.setReportFile(reportFile)
+
+        handler.uncaughtException(Thread.currentThread(), IllegalStateException("x".repeat(1000)))
+
+        assertThat(reportFile.length()).isEqualTo(64L)
+    }
+
+    @Test
+    fun `the report file is only created on a crash`() {
+        val handler = CrashLogHandler(CrashLogHandler.DEFAULT_EMERGENCY_BUFFER_SIZE, previousHandler)
+
+        handler.setReportFile(reportFile)
+
+        assertThat(reportFile.exists()).isFalse
+    }
+
+    @Test
+    fun `the previous handler runs without a report file`() {
+        val handler = CrashLogHandler(CrashLogHandler.DEFAULT_EMERGENCY_BUFFER_SIZE, previousHandler)
+        val crash = IllegalStateException()
+
+        handler.uncaughtException(Thread.currentThread(), crash)
+
+        assertThat(reportFile.exists()).isFalse
+        assertThat(handledByPrevious).containsExactly(crash)
+    }
+}
@@ -0,0 +1,67 @@
+package org.wordpress.android.util
+
+import android.graphics.BitmapFactory
+import android.graphics.RectF
+import android.os.Build
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import kotlin.math.roundToInt
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class ImageUtilsTest {
+    @Test
+    fun `scaled png decodes reach the max size`() {
+        // sampled down by 8 to 1000x500, the png decoder rounds down
+        val options = bounds(8007, 4003, "image/png")
+
+        ImageUtils.setScaledDecodeOptions(options, 1000)
+
+        val size = BitmapPool.getDecodedSize(options)!!
+        assertThat(size.x).isEqualTo(1000)
+        assertThat(size.y).isEqualTo(500)
+    }
+
+    @Test
+    fun `scaled jpeg decodes reach the max size`() {
+        // sampled down by 8 to 1001x501, the jpeg decoder rounds up
+        val options = bounds(8007, 4003, "image/jpeg")
+
+        ImageUtils.setScaledDecodeOptions(options, 1000)
+
+        val size = BitmapPool.getDecodedSize(options)!!
+        assertThat(size.x).isEqualTo(1000)
+        assertThat(size.y).isEqualTo(500)
+    }
+
+    @Test
+    fun `unrotated images are scaled to the max size`() {
+        val bounds = RectF()
+
+        ImageUtils.getScaleAndRotateMatrix(1001, 500, 300, 0, bounds)
+
+        assertThat(bounds.width().roundToInt()).isEqualTo(300)
+        assertThat(bounds.height().roundToInt()).isEqualTo(150)
+    }
+
+    @Test
+    fun `rotated images are scaled to the max size with their sides swapped`() {
+        val bounds = RectF()
+
+        ImageUtils.getScaleAndRotateMatrix(1001, 500, 300, 90, bounds)
+
+        assertThat(bounds.left).isEqualTo(0f)
+        assertThat(bounds.top).isEqualTo(0f)
+        assertThat(bounds.width().roundToInt()).isEqualTo(150)
+        assertThat(bounds.height().roundToInt()).isEqualTo(300)
+    }
+
+    private fun bounds(width: Int, height: Int, mimeType: String) = BitmapFactory.Options().apply {
+        outWidth = width
+        outHeight = height
+        outMimeType = mimeType
+    }
+}
@@ -0,0 +1,46 @@
+package org.wordpress.android.util
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.wordpress.android.util.helpers.logfile.LogDateFormatter
+import java.text.SimpleDateFormat
+import java.util.Date
+import java.util.Locale
+import java.util.TimeZone
+import kotlin.random.Random
+
+class LogDateFormatterTest {
+    private val referenceFormat = SimpleDateFormat("MMM-dd kk:mm", Locale.US).apply {
+        timeZone = TimeZone.getTimeZone("UTC")
+    }
+
+    @Test
+    fun `format renders the timestamp in UTC`() {
+        // Tue Jul 30 2019 10:54:18 in UTC
+        assertThat(LogDateFormatter.format(1564484058163L)).isEqualTo("Jul-30 10:54")
+    }
+
+    @Test
+    fun `format renders midnight as hour 24`() {
+        // Tue Feb 29 2000 00:05:00 in UTC
+        assertThat(LogDateFormatter.format(951782700000L)).isEqualTo("Feb-29 24:05")
+    }
+
+    @Test
+    fun `format matches SimpleDateFormat`() {
+        val random = Random(42)
+        repeat(10_000) {
+            val timestamp = random.nextLong(0L, 4_102_444_800_000L)
+            assertThat(LogDateFormatter.format(timestamp)).isEqualTo(referenceFormat.format(Date(timestamp)))
+        }
+    }
+
+    @Test
+    fun `appendTo writes into the given builder`() {
+        val builder = StringBuilder("[")
+
+        LogDateFormatter.appendTo(builder, 1564484058163L).append("]")
+
+        assertThat(builder.toString()).isEqualTo("[Jul-30 10:54]")
+    }
+}
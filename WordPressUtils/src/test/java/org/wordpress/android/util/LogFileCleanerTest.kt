@@ -71,4 +71,30 @@ class LogFileCleanerTest {
         LogFileCleaner(testProvider, 0).clean()
         assertTrue(testProvider.getLogFileDirectory().listFiles()?.isEmpty() ?: false)
     }
+
+    @Test
+    fun testThatCleanerCountsTheSegmentsOfASessionOnce() {
+        val directory = testProvider.getLogFileDirectory()
+        // a session whose file id ends with a time zone offset, rotated into two segments, one of them compressed
+        listOf("2020-01-01T10:00:00-0500.log", "2020-01-01T10:00:00-0500-1.log.gz", "2020-01-01T10:00:00-0500-2.log")
+                .forEachIndexed { index, name ->
+                    File(directory, name).apply {
+                        writeText(name)
+                        setLastModified((MAX_FILES + index) * 10_000L)
+                    }
+                }
+
+        LogFileCleaner(testProvider, 2).clean()
+
+        val remainingFiles = testProvider.getLogFiles().map { it.name }
+        assertEquals(
+                listOf(
+                        "9.log",
+                        "2020-01-01T10:00:00-0500.log",
+                        "2020-01-01T10:00:00-0500-1.log.gz",
+                        "2020-01-01T10:00:00-0500-2.log"
+                ),
+                remainingFiles
+        )
+    }
 }
@@ -0,0 +1,105 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.AppLog.LogLevel
+import org.wordpress.android.util.AppLog.T
+import org.wordpress.android.util.helpers.logfile.LogFileDecoder
+import org.wordpress.android.util.helpers.logfile.LogFileFormat
+import org.wordpress.android.util.helpers.logfile.LogFileProvider
+import org.wordpress.android.util.helpers.logfile.LogFileWriter
+import org.wordpress.android.util.helpers.logfile.LogRecord
+import java.io.RandomAccessFile
+import java.io.StringWriter
+
+/**
+ * Jul 30 2019 10:54:18 in UTC
+ */
+private const val TIMESTAMP = 1564484058163L
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class LogFileDecoderTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val testProvider = LogFileProvider.fromContext(context)
+
+    @After
+    fun tearDown() {
+        // Delete the test directory after each test
+        testProvider.getLogFileDirectory().deleteRecursively()
+    }
+
+    @Test
+    fun testThatBinaryRecordsAreDecoded() {
+        val writer = writeBinaryLog()
+
+        val records = mutableListOf<LogRecord>()
+        LogFileDecoder(writer.getFile()).forEachRecord { records.add(it) }
+
+        assertEquals(3, records.size)
+        assertEquals(LogRecord(TIMESTAMP, T.MEDIA, LogLevel.w, "upload <failed>\nretrying"), records[1])
+        assertEquals(LogRecord(TIMESTAMP, T.READER, LogLevel.d, "synced ✓"), records[2])
+    }
+
+    @Test
+    fun testThatBinaryLogIsRenderedAsPlainText() {
+        val writer = writeBinaryLog()
+
+        val text = StringWriter().also { LogFileDecoder(writer.getFile()).writePlainText(it) }.toString()
+
+        assertEquals("Header\n[Jul-30 10:54 MEDIA] upload <failed>\nretrying\n[Jul-30 10:54 READER] synced ✓\n", text)
+    }
+
+    @Test
+    fun testThatBinaryLogIsRenderedAsHtml() {
+        val writer = writeBinaryLog()
+
+        val html = StringWriter().also { LogFileDecoder(writer.getFile()).writeHtml(it) }.toString().lines()
+
+        assertEquals("Header", html[0])
+        assertEquals("[Jul-30 10:54 MEDIA w] upload &lt;failed&gt;<br />retrying", html[1])
+    }
+
+    @Test
+    fun testThatTruncatedRecordIsIgnored() {
+        val writer = writeBinaryLog()
+        RandomAccessFile(writer.getFile(), "rw").use { it.setLength(it.length() - 3) }
+
+        val records = mutableListOf<LogRecord>()
+        LogFileDecoder(writer.getFile()).forEachRecord { records.add(it) }
+
+        assertEquals(2, records.size)
+    }
+
+    @Test
+    fun testThatTextLogFilesAreNotDetectedAsBinary() {
+        val writer = LogFileWriter(testProvider, "text", LogFileFormat.TEXT)
+        writer.write("Header\n")
+
+        // Allow the async process to persist the file changes
+        Thread.sleep(1000)
+
+        assertFalse(LogFileDecoder.isBinaryLogFile(writer.getFile()))
+        assertTrue(LogFileDecoder.isBinaryLogFile(writeBinaryLog().getFile()))
+    }
+
+    private fun writeBinaryLog(): LogFileWriter {
+        val writer = LogFileWriter(testProvider, "binary", LogFileFormat.BINARY)
+        writer.write("Header\n")
+        writer.write(TIMESTAMP, T.MEDIA, LogLevel.w, "upload <failed>\nretrying")
+        writer.write(TIMESTAMP, T.READER, LogLevel.d, "synced ✓")
+
+        // Allow the async process to persist the file changes
+        Thread.sleep(1000)
+        return writer
+    }
+}
@@ -55,4 +55,39 @@ class LogFileHelpersTest {
         val files = testProvider.getLogFiles()
         assert(files.first().lastModified() < files.last().lastModified())
     }
+
+    @Test
+    fun testThatDiskBudgetDeletesOldestFilesExceptActiveOne() {
+        val directory = testProvider.getLogFileDirectory()
+        val files = (1..4).map { index ->
+            File(directory, "$index.log").also { file ->
+                file.writeText("x".repeat(100))
+                file.setLastModified(index * 1_000_000L)
+            }
+        }
+
+        testProvider.enforceDiskBudget(250, files[0])
+
+        Assert.assertEquals(listOf("1.log", "4.log"), testProvider.getLogFiles().map { it.name })
+    }
+
+    @Test
+    fun testThatLogFilesLeaveOutFilesBeingCompressed() {
+        val directory = testProvider.getLogFileDirectory()
+        File(directory, "1.log").createNewFile()
+        File(directory, "2.log.gz.tmp").createNewFile()
+
+        Assert.assertEquals(listOf("1.log"), testProvider.getLogFiles().map { it.name })
+    }
+
+    @Test
+    fun testThatDiskBudgetSkipsFilesBeingCompressed() {
+        val directory = testProvider.getLogFileDirectory()
+        val temporary = File(directory, "1.log.gz.tmp").apply { writeText("x".repeat(100)) }
+        val active = File(directory, "2.log").apply { writeText("x".repeat(100)) }
+
+        testProvider.enforceDiskBudget(50, active)
+
+        assert(temporary.exists())
+    }
 }
@@ -0,0 +1,115 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.AppLog.LogLevel
+import org.wordpress.android.util.AppLog.T
+import org.wordpress.android.util.helpers.logfile.LogFileFormat
+import org.wordpress.android.util.helpers.logfile.LogFileProvider
+import org.wordpress.android.util.helpers.logfile.LogFileSearch
+import org.wordpress.android.util.helpers.logfile.LogFileWriter
+import org.wordpress.android.util.helpers.logfile.LogQuery
+import org.wordpress.android.util.helpers.logfile.LogRecord
+import java.io.File
+
+/**
+ * Jul 30 2019 10:54:18 in UTC
+ */
+private const val TIMESTAMP = 1564484058163L
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class LogFileSearchTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val testProvider = LogFileProvider.fromContext(context)
+    private val search = LogFileSearch(testProvider)
+
+    @After
+    fun tearDown() {
+        // Delete the test directory after each test
+        testProvider.getLogFileDirectory().deleteRecursively()
+    }
+
+    @Test
+    fun testThatRecordsAreFilteredByTagAndLevel() {
+        writeBinaryLog()
+
+        val records = search(LogQuery(setOf(T.MEDIA), LogLevel.w))
+
+        assertEquals(listOf("upload 0 failed", "upload 50 failed"), records.map { it.message })
+    }
+
+    @Test
+    fun testThatRecordsAreFilteredByTimeRange() {
+        writeBinaryLog()
+
+        // one record every 10 seconds
+        val records = search(LogQuery(fromTimestamp = TIMESTAMP + 600_000, toTimestamp = TIMESTAMP + 629_999))
+
+        assertEquals(listOf("sync 60", "sync 61", "sync 62"), records.map { it.message })
+    }
+
+    @Test
+    fun testThatQueriesWithoutCriteriaReturnEveryRecord() {
+        writeBinaryLog()
+
+        val records = search(LogQuery())
+
+        assertEquals(101, records.size)
+        assertEquals("Header\n", records[0].message)
+    }
+
+    @Test
+    fun testThatIndexIsExtendedWithAppendedRecords() {
+        val writer = writeBinaryLog()
+        assertEquals(2, search(LogQuery(setOf(T.MEDIA))).size)
+
+        writer.write(TIMESTAMP + 2_000_000, T.MEDIA, LogLevel.i, "upload resumed")
+        writer.flushNow()
+
+        assertEquals("upload resumed", search(LogQuery(setOf(T.MEDIA))).last().message)
+    }
+
+    @Test
+    fun testThatIndexesAreNotListedAsLogFilesAndAreDeletedWithThem() {
+        val logFile = writeBinaryLog().getFile()
+        search(LogQuery())
+        val index = File(logFile.parentFile, "${logFile.name}.idx")
+        assertTrue(index.exists())
+        assertEquals(listOf(logFile), testProvider.getLogFiles())
+
+        logFile.delete()
+        search(LogQuery())
+
+        assertFalse(index.exists())
+    }
+
+    private fun search(query: LogQuery): List<LogRecord> {
+        val records = mutableListOf<LogRecord>()
+        search.forEachMatch(query) { records.add(it) }
+        return records
+    }
+
+    private fun writeBinaryLog(): LogFileWriter {
+        val writer = LogFileWriter(testProvider, "search", LogFileFormat.BINARY)
+        writer.write("Header\n")
+        repeat(100) {
+            if (it % 50 == 0) {
+                writer.write(TIMESTAMP + it * 10_000L, T.MEDIA, LogLevel.e, "upload $it failed")
+            } else {
+                writer.write(TIMESTAMP + it * 10_000L, T.READER, LogLevel.d, "sync $it")
+            }
+        }
+        writer.flushNow()
+        return writer
+    }
+}
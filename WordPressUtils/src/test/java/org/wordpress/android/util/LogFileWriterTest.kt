@@ -5,12 +5,19 @@ import android.os.Build
 import androidx.test.core.app.ApplicationProvider
 import org.junit.After
 import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.robolectric.RobolectricTestRunner
 import org.robolectric.annotation.Config
+import org.wordpress.android.util.AppLog.LogLevel
+import org.wordpress.android.util.AppLog.T
+import org.wordpress.android.util.helpers.logfile.LogFileDecoder
+import org.wordpress.android.util.helpers.logfile.LogFileFormat
 import org.wordpress.android.util.helpers.logfile.LogFileProvider
 import org.wordpress.android.util.helpers.logfile.LogFileWriter
+import org.wordpress.android.util.helpers.logfile.LogRotationPolicy
 import java.io.FileReader
 import java.util.UUID
 
@@ -44,4 +51,96 @@ class LogFileWriterTest {
         val contents = FileReader(writer.getFile()).readText()
         assertEquals(randomString, contents)
     }
+
+    @Test
+    fun testThatFlushNowWritesPendingContentsSynchronously() {
+        val writer = LogFileWriter(testProvider, "flush", maxFlushDelayMs = 60_000)
+        repeat(3) { writer.write("$it\n") }
+
+        writer.flushNow()
+
+        val contents = FileReader(writer.getFile()).readText()
+        assertEquals("0\n1\n2\n", contents)
+    }
+
+    @Test
+    fun testThatTimedOutFlushKeepsRecordsPending() {
+        val writer = LogFileWriter(testProvider, "deadline", maxFlushDelayMs = 60_000)
+        repeat(3) { writer.write("$it\n") }
+
+        assertFalse(writer.flushNow(0))
+        assertEquals(3, writer.getStats().pendingRecords)
+
+        assertTrue(writer.flushNow(1_000))
+        assertEquals("0\n1\n2\n", FileReader(writer.getFile()).readText())
+    }
+
+    @Test
+    fun testThatStatsCountWrittenRecords() {
+        val writer = LogFileWriter(testProvider, "stats", maxFlushDelayMs = 60_000)
+        repeat(10) { writer.write("$it\n") }
+        assertEquals(10, writer.getStats().pendingRecords)
+
+        writer.flushNow()
+
+        val stats = writer.getStats()
+        assertEquals(10L, stats.recordsWritten)
+        assertEquals(1L, stats.flushes)
+        assertEquals(0, stats.pendingRecords)
+    }
+
+    @Test
+    fun testThatWriterRotatesFilesBySize() {
+        val writer = LogFileWriter(
+                testProvider,
+                "rotating",
+                rotationPolicy = LogRotationPolicy(maxFileSizeBytes = 10)
+        )
+        writer.write("first line\n")
+        writer.flushNow()
+        writer.write("second line\n")
+        writer.flushNow()
+
+        val files = testProvider.getLogFiles().map { it.name }.toSet()
+        assertEquals(setOf("rotating.log", "rotating-1.log", "rotating-2.log"), files)
+        assertEquals("rotating-2.log", writer.getFile().name)
+    }
+
+    @Test
+    fun testThatMappedWriterPersistsRecordsSynchronouslyAndRollsOver() {
+        val writer = LogFileWriter(
+                testProvider,
+                "mapped",
+                LogFileFormat.MAPPED,
+                rotationPolicy = LogRotationPolicy(maxFileSizeBytes = 4096)
+        )
+        repeat(100) { writer.write(System.currentTimeMillis(), T.MEDIA, LogLevel.d, "message number $it") }
+
+        // No sleep or flush needed, the records are already in the mapped segments
+        val segments = testProvider.getLogFiles().sortedBy { it.nameWithoutExtension.substringAfter('-', "0").toInt() }
+        val messages = segments.flatMap { file ->
+            mutableListOf<String>().also { messages -> LogFileDecoder(file).forEachRecord { messages.add(it.message) } }
+        }
+        assertEquals((0 until 100).map { "message number $it" }, messages)
+        assertTrue(segments.size > 1)
+    }
+
+    @Test
+    fun testThatMappedWriterClosesRotatedSegmentsInTheBackground() {
+        val writer = LogFileWriter(
+                testProvider,
+                "closing",
+                LogFileFormat.MAPPED,
+                rotationPolicy = LogRotationPolicy(maxFileSizeBytes = 4096)
+        )
+        repeat(1000) { writer.write(System.currentTimeMillis(), T.MEDIA, LogLevel.d, "message number $it") }
+
+        // waits for the rotated segments to be truncated
+        writer.flushNow()
+
+        // only the active segment and the one mapped ahead of it keep their full size
+        val fullSegments = testProvider.getLogFiles().filter { it.length() == 4096L }
+        assertTrue(fullSegments.size <= 2)
+        assertTrue(testProvider.getLogFiles().size > 2)
+    }
 }
@@ -0,0 +1,83 @@
+package org.wordpress.android.util
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.data.Percentage.withPercentage
+import org.junit.Test
+import org.wordpress.android.util.helpers.profiling.Histogram
+import org.wordpress.android.util.helpers.profiling.MetricsRegistry
+import java.util.concurrent.TimeUnit
+
+class MetricsRegistryTest {
+    private val registry = MetricsRegistry()
+
+    @Test
+    fun `histogram percentiles stay within the bucket precision`() {
+        val histogram = Histogram()
+        (1..100_000L).forEach { histogram.record(it * 1_000) }
+
+        val snapshot = histogram.snapshot()
+
+        assertThat(snapshot.count).isEqualTo(100_000)
+        assertThat(snapshot.min).isEqualTo(1_000)
+        assertThat(snapshot.max).isEqualTo(100_000_000)
+        assertThat(snapshot.percentile(50.0)).isCloseTo(50_000_000, withPercentage(3.5))
+        assertThat(snapshot.percentile(99.0)).isCloseTo(99_000_000, withPercentage(3.5))
+        assertThat(snapshot.mean).isCloseTo(50_000_500.0, withPercentage(0.01))
+    }
+
+    @Test
+    fun `small values are recorded exactly`() {
+        val histogram = Histogram()
+        listOf(0L, 3L, 3L, 7L).forEach { histogram.record(it) }
+
+        val snapshot = histogram.snapshot()
+
+        assertThat(snapshot.percentile(25.0)).isEqualTo(0)
+        assertThat(snapshot.percentile(75.0)).isEqualTo(3)
+        assertThat(snapshot.percentile(100.0)).isEqualTo(7)
+    }
+
+    @Test
+    fun `concurrent updates are all counted`() {
+        val counter = registry.counter("events")
+        val timer = registry.timer("work")
+
+        val threads = (1..4).map {
+            Thread {
+                repeat(10_000) {
+                    counter.increment()
+                    timer.record(it.toLong(), TimeUnit.MICROSECONDS)
+                }
+            }
+        }
+        threads.forEach { it.start() }
+        threads.forEach { it.join() }
+
+        val snapshot = registry.snapshot()
+        assertThat(snapshot.counters["events"]).isEqualTo(40_000)
+        assertThat(snapshot.timers["work"]?.count).isEqualTo(40_000)
+        assertThat(snapshot.timers["work"]?.max).isEqualTo(TimeUnit.MICROSECONDS.toNanos(9_999))
+    }
+
+    @Test
+    fun `metrics are created once per name`() {
+        assertThat(registry.counter("a")).isSameAs(registry.counter("a"))
+        assertThat(registry.timer("a")).isSameAs(registry.timer("a"))
+    }
+
+    @Test
+    fun `snapshot and reset starts over but keeps gauges`() {
+        registry.counter("uploads").add(3)
+        registry.gauge("queue").set(7)
+        registry.histogram("sizes").record(1_024)
+
+        val first = registry.snapshotAndReset()
+        val second = registry.snapshot()
+
+        assertThat(first.counters["uploads"]).isEqualTo(3)
+        assertThat(first.histograms["sizes"]?.count).isEqualTo(1)
+        assertThat(second.counters["uploads"]).isEqualTo(0)
+        assertThat(second.histograms["sizes"]?.count).isEqualTo(0)
+        assertThat(second.gauges["queue"]).isEqualTo(7)
+    }
+}
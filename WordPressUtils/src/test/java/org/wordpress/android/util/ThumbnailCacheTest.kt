@@ -0,0 +1,99 @@
+package org.wordpress.android.util
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.os.Build
+import androidx.test.core.app.ApplicationProvider
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.After
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.io.File
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class ThumbnailCacheTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+    private val directory = File(context.cacheDir, "thumbnail-cache-test")
+    private val source = File(context.cacheDir, "photo.jpg").apply { writeText("not really a jpeg") }
+
+    @After
+    fun tearDown() {
+        directory.deleteRecursively()
+        source.delete()
+    }
+
+    @Test
+    fun `thumbnails are served from memory`() {
+        val cache = ThumbnailCache(directory, 1024 * 1024, 1024 * 1024)
+        val thumbnail = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888)
+
+        cache.put(key(), source.lastModified(), thumbnail)
+
+        assertThat(cache.getFromMemory(key())).isSameAs(thumbnail)
+        assertThat(cache.get(key(), source.lastModified())).isSameAs(thumbnail)
+    }
+
+    @Test
+    fun `thumbnails survive in the disk tier`() {
+        val thumbnail = Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565)
+        ThumbnailCache(directory, 1024 * 1024, 1024 * 1024).put(key(), source.lastModified(), thumbnail)
+
+        val cache = ThumbnailCache(directory, 1024 * 1024, 1024 * 1024)
+
+        assertThat(cache.getFromMemory(key())).isNull()
+        assertThat(cache.get(key(), source.lastModified())).isNotNull
+        assertThat(cache.getFromMemory(key())).isNotNull
+    }
+
+    @Test
+    fun `modified sources are not served from the cache`() {
+        val cache = ThumbnailCache(directory, 1024 * 1024, 1024 * 1024)
+        cache.put(key(), source.lastModified(), Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565))
+
+        source.setLastModified(source.lastModified() - 60_000)
+
+        assertThat(cache.get(key(), source.lastModified())).isNull()
+        assertThat(cache.getFromMemory(key())).isNull()
+    }
+
+    @Test
+    fun `sizes are cached separately`() {
+        val cache = ThumbnailCache(directory, 1024 * 1024, 1024 * 1024)
+        cache.put(key(), source.lastModified(), Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565))
+
+        assertThat(cache.getFromMemory(ThumbnailCache.Key(source.path, 200, 200))).isNull()
+        assertThat(cache.getFromMemory(ThumbnailCache.Key(source.path, 100, 100))).isNotNull
+    }
+
+    @Test
+    fun `trimming the disk tier leaves the thumbnails being written`() {
+        directory.mkdirs()
+        val beingWritten = File(directory, "thumbnail.tmp").apply {
+            writeText("being written")
+            setLastModified(0)
+        }
+        val cache = ThumbnailCache(directory, 1024 * 1024, 1)
+
+        cache.put(key(), source.lastModified(), Bitmap.createBitmap(100, 100, Bitmap.Config.RGB_565))
+
+        assertThat(beingWritten.exists()).isTrue
+        assertThat(directory.listFiles()).containsExactly(beingWritten)
+    }
+
+    @Test
+    fun `the memory tier is bounded in bytes`() {
+        val cache = ThumbnailCache(directory, 100 * 100 * 4, 0)
+        cache.put(key(), source.lastModified(), Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888))
+        val other = ThumbnailCache.Key(source.path, 50, 50)
+
+        cache.put(other, source.lastModified(), Bitmap.createBitmap(50, 50, Bitmap.Config.ARGB_8888))
+
+        assertThat(cache.getFromMemory(key())).isNull()
+        assertThat(cache.getFromMemory(other)).isNotNull
+    }
+
+    private fun key() = ThumbnailCache.Key(source.path, 100, 100)
+}
@@ -0,0 +1,62 @@
+package org.wordpress.android.util
+
+import android.graphics.BitmapFactory
+import android.os.Build
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import java.awt.image.BufferedImage
+import java.io.File
+import javax.imageio.ImageIO
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class TiledBitmapDecoderTest {
+    @Test
+    fun `images sampled below the budget are decoded at once`() {
+        // sampled down by 8 to 1000x500
+        val bounds = bounds(8000, 4000)
+
+        assertThat(TiledBitmapDecoder.shouldDecodeTiled(bounds, 1000, 1000 * 500 * 4L)).isFalse
+    }
+
+    @Test
+    fun `images sampled above the budget are decoded by tiles`() {
+        val bounds = bounds(8000, 4000)
+
+        assertThat(TiledBitmapDecoder.shouldDecodeTiled(bounds, 1000, 1000 * 500 * 4L - 1)).isTrue
+    }
+
+    @Test
+    fun `panoramas kept at their original size are decoded by tiles`() {
+        val bounds = bounds(40000, 2000)
+
+        assertThat(TiledBitmapDecoder.shouldDecodeTiled(bounds, 40000, 64 * 1024 * 1024L)).isTrue
+    }
+
+    @Test
+    fun `tiles are drawn into the scaled and rotated result`() {
+        val file = File.createTempFile("panorama", ".png")
+        try {
+            ImageIO.write(BufferedImage(100, 60, BufferedImage.TYPE_INT_ARGB), "png", file)
+            val tiledDecodes = ProfilingUtils.getMetrics().counter("image.tiled_decodes")
+            val tiledDecodesBefore = tiledDecodes.get()
+
+            // sampled down by 2 to 50x30, in 8x8 tiles
+            val decoded = TiledBitmapDecoder.decode(file.path, bounds(100, 60), 50, 90, 0, BitmapPool(0), 8)
+
+            assertThat(decoded.width).isEqualTo(30)
+            assertThat(decoded.height).isEqualTo(50)
+            assertThat(tiledDecodes.get()).isEqualTo(tiledDecodesBefore + 1)
+        } finally {
+            file.delete()
+        }
+    }
+
+    private fun bounds(width: Int, height: Int) = BitmapFactory.Options().apply {
+        outWidth = width
+        outHeight = height
+    }
+}
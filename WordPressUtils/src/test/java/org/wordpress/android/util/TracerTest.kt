@@ -0,0 +1,152 @@
+package org.wordpress.android.util
+
+import android.os.Build
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.robolectric.RobolectricTestRunner
+import org.robolectric.annotation.Config
+import org.wordpress.android.util.helpers.profiling.MetricsRegistry
+import org.wordpress.android.util.helpers.profiling.SamplingPolicy
+import org.wordpress.android.util.helpers.profiling.Span
+import org.wordpress.android.util.helpers.profiling.Tracer
+import java.util.concurrent.CountDownLatch
+
+@RunWith(RobolectricTestRunner::class)
+@Config(sdk = [Build.VERSION_CODES.O_MR1])
+class TracerTest {
+    private val metrics = MetricsRegistry()
+    private val tracer = Tracer(metrics)
+
+    @Test
+    fun `spans started inside another span become its children`() {
+        val finished = mutableListOf<Span>()
+        tracer.addListener { finished.add(it) }
+
+        tracer.startSpan("upload").use { upload ->
+            tracer.startSpan("resize").use { }
+            tracer.startSpan("send").use { send ->
+                assertThat(tracer.currentSpan()).isSameAs(send)
+                assertThat(send.parent).isSameAs(upload)
+            }
+            assertThat(tracer.currentSpan()).isSameAs(upload)
+        }
+
+        assertThat(tracer.currentSpan()).isNull()
+        assertThat(finished).hasSize(1)
+        assertThat(finished[0].getChildren().map { it.name }).containsExactly("resize", "send")
+        assertThat(finished[0].toLines()).hasSize(3)
+        assertThat(finished[0].toLines()[1]).startsWith("  resize: ")
+    }
+
+    @Test
+    fun `threads keep their own current span`() {
+        val started = CountDownLatch(2)
+        val release = CountDownLatch(1)
+        val roots = mutableListOf<Span?>()
+
+        val threads = (1..2).map { worker ->
+            Thread {
+                tracer.startSpan("worker-$worker").use {
+                    started.countDown()
+                    release.await()
+                    tracer.startSpan("step").use { step ->
+                        synchronized(roots) { roots.add(step.parent) }
+                    }
+                }
+            }
+        }
+        threads.forEach { it.start() }
+        started.await()
+        release.countDown()
+        threads.forEach { it.join() }
+
+        assertThat(roots.map { it?.name }).containsExactlyInAnyOrder("worker-1", "worker-2")
+    }
+
+    @Test
+    fun `work handed to another thread can be attached to a parent span`() {
+        val upload = tracer.startSpan("upload")
+        val worker = Thread { tracer.startSpan("encode", upload).use { } }
+        worker.start()
+        worker.join()
+        upload.close()
+
+        assertThat(upload.getChildren().single().name).isEqualTo("encode")
+        assertThat(upload.getChildren().single().isFinished).isTrue
+    }
+
+    @Test
+    fun `span durations are recorded as timers`() {
+        repeat(3) { tracer.startSpan("query").use { } }
+
+        assertThat(metrics.snapshot().timers["span.query"]?.count).isEqualTo(3)
+    }
+
+    @Test
+    fun `closing a span twice records it once`() {
+        val span = tracer.startSpan("once")
+        span.close()
+        span.close()
+
+        assertThat(metrics.snapshot().timers["span.once"]?.count).isEqualTo(1)
+    }
+
+    @Test
+    fun `only sampled span trees are recorded`() {
+        val finished = mutableListOf<Span>()
+        tracer.addListener { finished.add(it) }
+        tracer.samplingPolicy = SamplingPolicy.oneIn(3)
+
+        repeat(6) {
+            tracer.startSpan("sync").use {
+                tracer.startSpan("page").use { }
+            }
+        }
+
+        assertThat(finished).hasSize(2)
+        assertThat(finished.map { it.getChildren().size }).containsExactly(1, 1)
+        assertThat(metrics.snapshot().timers["span.page"]?.count).isEqualTo(2)
+    }
+
+    @Test
+    fun `unsampled spans are shared instances which record nothing`() {
+        tracer.samplingPolicy = SamplingPolicy.NEVER
+
+        val root = tracer.startSpan("sync")
+        val child = tracer.startSpan("page")
+        child.close()
+        val sibling = tracer.startSpan("page")
+        sibling.close()
+        root.close()
+
+        assertThat(sibling).isSameAs(child)
+        assertThat(root.isRecording).isFalse
+        assertThat(child.isRecording).isFalse
+        assertThat(tracer.currentSpan()).isNull()
+        assertThat(metrics.snapshot().timers).isEmpty()
+
+        tracer.samplingPolicy = SamplingPolicy.ALWAYS
+        tracer.startSpan("sync").use { assertThat(it.isRecording).isTrue }
+    }
+
+    @Test
+    fun `closing an unsampled span twice keeps its parent open`() {
+        val finished = mutableListOf<Span>()
+        tracer.addListener { finished.add(it) }
+        tracer.samplingPolicy = SamplingPolicy.NEVER
+        val root = tracer.startSpan("sync")
+        tracer.samplingPolicy = SamplingPolicy.ALWAYS
+
+        val child = tracer.startSpan("page")
+        child.close()
+        child.close()
+        tracer.startSpan("page").use { assertThat(it.isRecording).isFalse }
+        root.close()
+        root.close()
+
+        assertThat(finished).isEmpty()
+        tracer.startSpan("sync").use { assertThat(it.isRecording).isTrue }
+        assertThat(finished).hasSize(1)
+    }
+}
@@ -0,0 +1,65 @@
+package org.wordpress.android.util.benchmark;
+
+import android.graphics.Bitmap;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.wordpress.android.util.ImageUtils;
+import org.wordpress.android.util.benchmark.Fixtures.Size;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of the ImageUtils transformations of decoded bitmaps, for every fixture size.
+ */
+@RunWith(Parameterized.class)
+public class BitmapBenchmark {
+    @Rule public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Size mSize;
+    private Bitmap mBitmap;
+
+    @Parameters(name = "{0}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (Size size : Size.values()) {
+            parameters.add(new Object[]{size});
+        }
+        return parameters;
+    }
+
+    public BitmapBenchmark(Size size) {
+        mSize = size;
+    }
+
+    @Before
+    public void setUp() {
+        mBitmap = Fixtures.bitmap(mSize);
+    }
+
+    @After
+    public void tearDown() {
+        mBitmap.recycle();
+    }
+
+    @Test
+    public void getCircularBitmap() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            Bitmap circular = ImageUtils.getCircularBitmap(mBitmap);
+            // recycling the output right away keeps the native heap from growing during the run
+            state.pauseTiming();
+            circular.recycle();
+            state.resumeTiming();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package org.wordpress.android.util.benchmark;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.CompressFormat;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.media.ExifInterface;
+import android.os.Build;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Images the benchmarks run on, in the sizes and formats users upload.
+ *
+ * They are generated on the device the first time they're needed rather than shipped in the test APK, and drawn
+ * from a fixed seed so every run works on the same pixels. Gradients, overlapping shapes and a layer of noise give
+ * them about the entropy of a photo, which is what decoding and encoding times depend on.
+ */
+final class Fixtures {
+    enum Size {
+        /**
+         * Chat apps and screenshots of old phones
+         */
+        SMALL(640, 480),
+        /**
+         * 3MP, images already resized by another app
+         */
+        MEDIUM(2048, 1536),
+        /**
+         * 12MP, straight from the camera of a recent phone
+         */
+        LARGE(4032, 3024);
+
+        final int mWidth;
+        final int mHeight;
+
+        Size(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+    }
+
+    enum Format {
+        JPEG("jpg"),
+        PNG("png"),
+        WEBP("webp");
+
+        final String mExtension;
+
+        Format(String extension) {
+            mExtension = extension;
+        }
+
+        @SuppressWarnings("deprecation")
+        CompressFormat compressFormat() {
+            switch (this) {
+                case PNG:
+                    return CompressFormat.PNG;
+                case WEBP:
+                    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R ? CompressFormat.WEBP_LOSSY
+                            : CompressFormat.WEBP;
+                default:
+                    return CompressFormat.JPEG;
+            }
+        }
+    }
+
+    private static final long SEED = 0x57505554L;
+    private static final int SHAPE_COUNT = 200;
+    private static final int NOISE_TILE_SIZE = 256;
+    private static final int QUALITY = 90;
+
+    private Fixtures() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns the image of the passed size encoded in the passed format, e.g. photo-large.jpg
+     */
+    static File image(Context context, Size size, Format format) throws IOException {
+        File file = new File(directory(context), name(size) + "." + format.mExtension);
+        if (!file.exists()) {
+            write(bitmap(size), format, file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns the JPEG of the passed size, tagged as taken with the camera rotated by 90 degrees
+     */
+    static File rotatedJpeg(Context context, Size size) throws IOException {
+        File file = new File(directory(context), name(size) + "-rotated.jpg");
+        if (!file.exists()) {
+            File tmp = new File(file.getPath() + ".tmp");
+            write(bitmap(size), Format.JPEG, tmp);
+            ExifInterface exif = new ExifInterface(tmp.getPath());
+            exif.setAttribute(ExifInterface.TAG_ORIENTATION, String.valueOf(ExifInterface.ORIENTATION_ROTATE_90));
+            exif.saveAttributes();
+            rename(tmp, file);
+        }
+        return file;
+    }
+
+    /**
+     * Returns a copy of the image of the passed size and format without the file extension, the way some pickers
+     * and downloads name them
+     */
+    static File imageWithoutExtension(Context context, Size size, Format format) throws IOException {
+        File file = new File(directory(context), name(size) + "-" + format.mExtension);
+        if (!file.exists()) {
+            write(bitmap(size), format, file);
+        }
+        return file;
+    }
+
+    static Bitmap bitmap(Size size) {
+        Random random = new Random(SEED);
+        Bitmap bitmap = Bitmap.createBitmap(size.mWidth, size.mHeight, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+
+        // sky and ground
+        paint.setShader(new LinearGradient(0, 0, 0, size.mHeight, Color.rgb(70, 130, 200), Color.rgb(90, 120, 60),
+                Shader.TileMode.CLAMP));
+        canvas.drawPaint(paint);
+        paint.setShader(null);
+
+        float scale = size.mWidth / 640f;
+        for (int i = 0; i < SHAPE_COUNT; i++) {
+            paint.setColor(Color.argb(64 + random.nextInt(192), random.nextInt(256), random.nextInt(256),
+                    random.nextInt(256)));
+            float x = random.nextFloat() * size.mWidth;
+            float y = random.nextFloat() * size.mHeight;
+            float radius = (4 + random.nextInt(60)) * scale;
+            if (i % 2 == 0) {
+                canvas.drawCircle(x, y, radius, paint);
+            } else {
+                canvas.drawRect(x, y, x + radius * 2, y + radius, paint);
+            }
+        }
+
+        // sensor noise, tiled to keep generating the large images cheap
+        int[] noise = new int[NOISE_TILE_SIZE * NOISE_TILE_SIZE];
+        for (int i = 0; i < noise.length; i++) {
+            int value = random.nextInt(256);
+            noise[i] = Color.argb(24, value, value, value);
+        }
+        Bitmap tile = Bitmap.createBitmap(noise, NOISE_TILE_SIZE, NOISE_TILE_SIZE, Bitmap.Config.ARGB_8888);
+        paint.setColor(Color.BLACK);
+        paint.setShader(new BitmapShader(tile, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT));
+        canvas.drawPaint(paint);
+        tile.recycle();
+
+        return bitmap;
+    }
+
+    private static String name(Size size) {
+        return "photo-" + size.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static File directory(Context context) {
+        File directory = new File(context.getCacheDir(), "benchmark-fixtures");
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalStateException("Can't create " + directory);
+        }
+        return directory;
+    }
+
+    private static void write(Bitmap bitmap, Format format, File file) throws IOException {
+        // write then rename, so an interrupted run doesn't leave a truncated fixture behind
+        File tmp = new File(file.getPath() + ".part");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            if (!bitmap.compress(format.compressFormat(), QUALITY, out)) {
+                throw new IOException("Can't encode " + file);
+            }
+        } finally {
+            bitmap.recycle();
+        }
+        rename(tmp, file);
+    }
+
+    private static void rename(File from, File to) throws IOException {
+        if (!from.renameTo(to)) {
+            throw new IOException("Can't rename " + from + " to " + to);
+        }
+    }
+}
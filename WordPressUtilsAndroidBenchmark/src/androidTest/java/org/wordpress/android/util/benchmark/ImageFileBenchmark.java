@@ -0,0 +1,122 @@
+package org.wordpress.android.util.benchmark;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+import org.wordpress.android.util.ImageUtils;
+import org.wordpress.android.util.benchmark.Fixtures.Format;
+import org.wordpress.android.util.benchmark.Fixtures.Size;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Benchmarks of the ImageUtils paths which decode an image file and encode it again, for every fixture size and
+ * format. Each reports the time and the number of allocations per call.
+ */
+@RunWith(Parameterized.class)
+public class ImageFileBenchmark {
+    // the defaults of the media upload settings of the apps
+    private static final int MAX_IMAGE_SIZE = 2000;
+    private static final int QUALITY = 85;
+    private static final int THUMBNAIL_WIDTH = 400;
+
+    @Rule public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Size mSize;
+    private final Format mFormat;
+    private Context mContext;
+    private File mImage;
+
+    @Parameters(name = "{0}_{1}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (Size size : Size.values()) {
+            for (Format format : Format.values()) {
+                parameters.add(new Object[]{size, format});
+            }
+        }
+        return parameters;
+    }
+
+    public ImageFileBenchmark(Size size, Format format) {
+        mSize = size;
+        mFormat = format;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mImage = Fixtures.image(mContext, mSize, mFormat);
+    }
+
+    @Test
+    public void optimizeImage() {
+        String path = mImage.getPath();
+        // optimizeImage() returns the original path when it fails, make sure the work is actually done
+        String optimized = ImageUtils.optimizeImage(mContext, path, MAX_IMAGE_SIZE, QUALITY);
+        assertNotEquals(path, optimized);
+        deleteOutput(optimized);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            optimized = ImageUtils.optimizeImage(mContext, path, MAX_IMAGE_SIZE, QUALITY);
+            state.pauseTiming();
+            deleteOutput(optimized);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    public void createThumbnailFromUri() {
+        Uri uri = Uri.fromFile(mImage);
+        assertNotNull(ImageUtils.createThumbnailFromUri(mContext, uri, THUMBNAIL_WIDTH, mFormat.mExtension, 0));
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ImageUtils.createThumbnailFromUri(mContext, uri, THUMBNAIL_WIDTH, mFormat.mExtension, 0);
+        }
+    }
+
+    @Test
+    public void rotateImageIfNecessary() throws IOException {
+        // the framework ExifInterface can only write the orientation of JPEGs below API 30
+        assumeTrue(mFormat == Format.JPEG);
+        String path = Fixtures.rotatedJpeg(mContext, mSize).getPath();
+        String rotated = ImageUtils.rotateImageIfNecessary(mContext, path);
+        assertNotNull(rotated);
+        deleteOutput(rotated);
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            rotated = ImageUtils.rotateImageIfNecessary(mContext, path);
+            state.pauseTiming();
+            deleteOutput(rotated);
+            state.resumeTiming();
+        }
+    }
+
+    private void deleteOutput(String path) {
+        // never delete the fixtures, both methods return the passed path when they fail
+        if (path != null && !path.startsWith(mImage.getParent())) {
+            //noinspection ResultOfMethodCallIgnored
+            new File(path).delete();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.wordpress.android.util.benchmark;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.wordpress.android.util.MediaUtils;
+import org.wordpress.android.util.benchmark.Fixtures.Format;
+import org.wordpress.android.util.benchmark.Fixtures.Size;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks of MediaUtils.getMediaFileMimeType(), which finds the type from the extension when there is one and
+ * falls back to reading the file otherwise. Each iteration goes through a whole batch of files.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MediaUtilsBenchmark {
+    // names as they come out of the camera, pickers and share intents, the files don't need to exist
+    private static final File[] NAMED_FILES = {
+            new File("/storage/emulated/0/DCIM/Camera/IMG_20230527_101500.jpg"),
+            new File("/storage/emulated/0/DCIM/Camera/PXL_20230527_101512345.MP.jpg"),
+            new File("/storage/emulated/0/DCIM/Camera/VID_20230527_102000.mp4"),
+            new File("/storage/emulated/0/Pictures/Screenshots/Screenshot_20230527-103000.png"),
+            new File("/storage/emulated/0/Download/photo.JPEG"),
+            new File("/storage/emulated/0/Download/animation.gif"),
+            new File("/storage/emulated/0/Download/scan.webp"),
+            new File("/storage/emulated/0/Download/report.pdf"),
+            new File("/storage/emulated/0/Recordings/voice memo.m4a"),
+            new File("/storage/emulated/0/Music/podcast episode 12.mp3")
+    };
+
+    @Rule public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @Test
+    public void getMediaFileMimeTypeFromExtension() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (File file : NAMED_FILES) {
+                MediaUtils.getMediaFileMimeType(file);
+            }
+        }
+    }
+
+    @Test
+    public void getMediaFileMimeTypeFromContent() throws IOException {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        File[] files = new File[Format.values().length];
+        for (Format format : Format.values()) {
+            files[format.ordinal()] = Fixtures.imageWithoutExtension(context, Size.SMALL, format);
+        }
+        assertEquals("image/png", MediaUtils.getMediaFileMimeType(files[Format.PNG.ordinal()]));
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (File file : files) {
+                MediaUtils.getMediaFileMimeType(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package org.wordpress.android.util.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Post content and URLs the benchmarks run on, loaded from the corpus resources.
+ *
+ * The posts are modelled on what the apps get from the REST API: a short reader excerpt, a block editor post with
+ * its block comments, srcset attributes and emoji, and a classic editor post with shortcodes and text pasted from
+ * word processors, control characters included.
+ */
+final class Corpus {
+    /**
+     * The names accepted by {@link #post(String)}, for use in @Param
+     */
+    static final String EXCERPT = "excerpt";
+    static final String BLOCK_POST = "block-post";
+    static final String CLASSIC_POST = "classic-post";
+    static final String LONG_FORM = "long-form";
+
+    // long-form posts are the block post, about 12.5KB, repeated: about 100KB
+    private static final int LONG_FORM_REPEAT = 8;
+
+    private Corpus() {
+        throw new AssertionError();
+    }
+
+    static String post(String name) {
+        if (LONG_FORM.equals(name)) {
+            String post = read(BLOCK_POST + ".html");
+            StringBuilder builder = new StringBuilder(post.length() * LONG_FORM_REPEAT);
+            for (int i = 0; i < LONG_FORM_REPEAT; i++) {
+                builder.append(post);
+            }
+            return builder.toString();
+        }
+        return read(name + ".html");
+    }
+
+    /**
+     * Returns the non-empty lines of the passed resource which aren't # comments
+     */
+    static String[] lines(String resource) {
+        List<String> lines = new ArrayList<>();
+        for (String line : read(resource).split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                lines.add(trimmed);
+            }
+        }
+        return lines.toArray(new String[0]);
+    }
+
+    private static String read(String resource) {
+        try (InputStream input = Corpus.class.getResourceAsStream("/corpus/" + resource)) {
+            if (input == null) {
+                throw new IllegalArgumentException("Unknown corpus resource " + resource);
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't read corpus resource " + resource, e);
+        }
+    }
+}
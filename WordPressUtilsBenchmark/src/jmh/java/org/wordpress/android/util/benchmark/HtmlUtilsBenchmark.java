@@ -0,0 +1,39 @@
+package org.wordpress.android.util.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wordpress.android.util.HtmlUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class HtmlUtilsBenchmark {
+    @Param({Corpus.EXCERPT, Corpus.BLOCK_POST, Corpus.CLASSIC_POST, Corpus.LONG_FORM})
+    public String post;
+
+    private String mContent;
+
+    @Setup
+    public void setUp() {
+        mContent = Corpus.post(post);
+    }
+
+    @Benchmark
+    public String fastStripHtml() {
+        return HtmlUtils.fastStripHtml(mContent);
+    }
+}
@@ -0,0 +1,66 @@
+package org.wordpress.android.util.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wordpress.android.util.PhotonUtils;
+import org.wordpress.android.util.PhotonUtils.Quality;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs getPhotonImageUrl() over the image URLs of a typical reader page: wp.com hosted, already photon-ised,
+ * self-hosted over http and https, mshots and URLs with stray fragments. The score is the average time per URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class PhotonUtilsBenchmark {
+    // must match the number of urls in corpus/image-urls.txt
+    private static final int URL_COUNT = 30;
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+
+    @Param({"false", "true"})
+    public boolean privateAtomicSite;
+
+    private String[] mUrls;
+
+    @Setup
+    public void setUp() {
+        mUrls = Corpus.lines("image-urls.txt");
+        if (mUrls.length != URL_COUNT) {
+            throw new IllegalStateException("Expected " + URL_COUNT + " urls, found " + mUrls.length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void getPhotonImageUrl(Blackhole blackhole) {
+        for (String url : mUrls) {
+            blackhole.consume(PhotonUtils.getPhotonImageUrl(url, WIDTH, HEIGHT, Quality.MEDIUM, privateAtomicSite));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void getPhotonImageUrlWidthOnly(Blackhole blackhole) {
+        for (String url : mUrls) {
+            blackhole.consume(PhotonUtils.getPhotonImageUrl(url, WIDTH, 0, Quality.HIGH, privateAtomicSite));
+        }
+    }
+}
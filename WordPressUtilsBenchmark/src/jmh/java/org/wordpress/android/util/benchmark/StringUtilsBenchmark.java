@@ -0,0 +1,65 @@
+package org.wordpress.android.util.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wordpress.android.util.StringUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class StringUtilsBenchmark {
+    // escapeHtml() is private, a constant method handle lets the JIT inline it like a direct call
+    private static final MethodHandle ESCAPE_HTML = escapeHtmlHandle();
+
+    @Param({Corpus.EXCERPT, Corpus.BLOCK_POST, Corpus.CLASSIC_POST, Corpus.LONG_FORM})
+    public String post;
+
+    private String mContent;
+
+    @Setup
+    public void setUp() {
+        mContent = Corpus.post(post);
+    }
+
+    @Benchmark
+    public String escapeHtml() throws Throwable {
+        return (String) ESCAPE_HTML.invokeExact(mContent);
+    }
+
+    @Benchmark
+    public String stripNonValidXMLCharacters() {
+        return StringUtils.stripNonValidXMLCharacters(mContent);
+    }
+
+    @Benchmark
+    public String replaceUnicodeSurrogateBlocksWithHTMLEntities() {
+        return StringUtils.replaceUnicodeSurrogateBlocksWithHTMLEntities(mContent);
+    }
+
+    private static MethodHandle escapeHtmlHandle() {
+        try {
+            Method method = StringUtils.class.getDeclaredMethod("escapeHtml", String.class);
+            method.setAccessible(true);
+            return MethodHandles.lookup().unreflect(method);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("StringUtils.escapeHtml(String) not found", e);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.wordpress.android.util.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.wordpress.android.util.UrlUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * normalizeUrl() is called for every link of the reader lists, so it runs over a mix of the URLs found there,
+ * relative ones included, and the score is the average time per URL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class UrlUtilsBenchmark {
+    // must match the number of urls in corpus/urls.txt
+    private static final int URL_COUNT = 40;
+
+    private String[] mUrls;
+
+    @Setup
+    public void setUp() {
+        mUrls = Corpus.lines("urls.txt");
+        if (mUrls.length != URL_COUNT) {
+            throw new IllegalStateException("Expected " + URL_COUNT + " urls, found " + mUrls.length);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void normalizeUrl(Blackhole blackhole) {
+        for (String url : mUrls) {
+            blackhole.consume(UrlUtils.normalizeUrl(url));
+        }
+    }
+}